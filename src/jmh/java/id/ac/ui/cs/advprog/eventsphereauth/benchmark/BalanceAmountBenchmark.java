@@ -0,0 +1,80 @@
+package id.ac.ui.cs.advprog.eventsphereauth.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceAmountRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.model.MinorUnits;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance request amounts: the old {@code Map<String, Double>} body converted with
+ * {@code BigDecimal.valueOf(double)}, against the typed request read straight into
+ * minor units. The accumulate pair compares summing amounts as BigDecimal and as long,
+ * the way the batch precheck projects each debited balance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceAmountBenchmark {
+
+    private static final int AMOUNTS = 64;
+
+    private final byte[] body = "{\"amount\": 125000.50}".getBytes();
+
+    private ObjectReader mapReader;
+    private ObjectReader requestReader;
+    private BigDecimal[] decimalAmounts;
+    private long[] minorAmounts;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        mapReader = objectMapper.readerFor(new TypeReference<Map<String, Double>>() { });
+        requestReader = objectMapper.readerFor(BalanceAmountRequest.class);
+        decimalAmounts = new BigDecimal[AMOUNTS];
+        minorAmounts = new long[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            decimalAmounts[i] = BigDecimal.valueOf(1999L + i, MinorUnits.SCALE);
+            minorAmounts[i] = 1999L + i;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal readDoubleMap() throws IOException {
+        Map<String, Double> payload = mapReader.readValue(body);
+        return BigDecimal.valueOf(payload.get("amount"));
+    }
+
+    @Benchmark
+    public BigDecimal readMinorUnits() throws IOException {
+        BalanceAmountRequest request = requestReader.readValue(body);
+        return MinorUnits.toDecimal(request.getAmount());
+    }
+
+    @Benchmark
+    public BigDecimal accumulateBigDecimal() {
+        BigDecimal balance = BigDecimal.ZERO;
+        for (BigDecimal amount : decimalAmounts) {
+            balance = balance.add(amount);
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public long accumulateMinorUnits() {
+        long balance = 0;
+        for (long amount : minorAmounts) {
+            balance = Math.addExact(balance, amount);
+        }
+        return balance;
+    }
+}
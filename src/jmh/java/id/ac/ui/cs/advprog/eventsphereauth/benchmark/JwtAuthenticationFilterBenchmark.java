@@ -0,0 +1,83 @@
+package id.ac.ui.cs.advprog.eventsphereauth.benchmark;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.RevokedTokenRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.security.JwtAuthenticationFilter;
+import id.ac.ui.cs.advprog.eventsphereauth.security.JwtService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.TokenRevocationService;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.ServletException;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One authenticated request through the JWT filter. The UserDetailsService is a
+ * stub returning a prebuilt user, so the numbers cover parsing, verification and
+ * building the Authentication, not the database or the principal cache. The
+ * revocation denylist is empty, which is the Bloom filter's common case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"false", "true"})
+    private boolean stateless;
+
+    @Param({"0", "16777216"})
+    private long tokenCacheMaxBytes;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey",
+                Base64.getEncoder().encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded()));
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtService, "tokenCacheMaxBytes", tokenCacheMaxBytes);
+
+        User user = new User("bench", "bench@example.com", "0800", "password");
+        user.setId(UUID.randomUUID());
+        user.setRole(Role.USER);
+        UserDetailsService userDetailsService = username -> user;
+
+        TokenRevocationService revocationService = new TokenRevocationService(
+                Mockito.mock(RevokedTokenRepository.class), 100_000, 0.01, TimeUnit.HOURS.toMillis(1));
+
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, revocationService);
+        ReflectionTestUtils.setField(filter, "statelessEnabled", stateless);
+        authorization = "Bearer " + jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public Authentication doFilter() throws ServletException, IOException {
+        // A fresh request each time, since OncePerRequestFilter marks the ones it has seen
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/me");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
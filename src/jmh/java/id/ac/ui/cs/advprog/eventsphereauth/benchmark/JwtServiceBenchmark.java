@@ -0,0 +1,113 @@
+package id.ac.ui.cs.advprog.eventsphereauth.benchmark;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import id.ac.ui.cs.advprog.eventsphereauth.security.JwtKeyRing;
+import id.ac.ui.cs.advprog.eventsphereauth.security.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private JwtService cachingJwtService;
+    private JwtService rsaJwtService;
+    private String secretKey;
+    private User user;
+    private String token;
+    private String rsaToken;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        secretKey = Base64.getEncoder().encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", secretKey);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+
+        cachingJwtService = new JwtService();
+        ReflectionTestUtils.setField(cachingJwtService, "secretKey", secretKey);
+        ReflectionTestUtils.setField(cachingJwtService, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(cachingJwtService, "tokenCacheMaxBytes", 16L * 1024 * 1024);
+
+        user = new User("bench", "bench@example.com", "0800", "password");
+        user.setId(UUID.randomUUID());
+        user.setRole(Role.USER);
+        token = jwtService.generateToken(user);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        rsaJwtService = new JwtService();
+        ReflectionTestUtils.setField(rsaJwtService, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(rsaJwtService, "secretKey", secretKey);
+        rsaJwtService.rotateKeys(List.of(
+                JwtKeyRing.SigningKey.rsa("bench", (RSAPrivateCrtKey) generator.generateKeyPair().getPrivate())));
+        rsaToken = rsaJwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateTokenRs256() {
+        return rsaJwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean isTokenValidRs256() {
+        return rsaJwtService.isTokenValid(rsaToken, user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public boolean isTokenValidWithTokenCache() {
+        return cachingJwtService.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public boolean isTokenValidRebuildingParserPerCall() {
+        String username = legacyExtractAllClaims(token).getSubject();
+        Date expiration = legacyExtractAllClaims(token).getExpiration();
+        return username.equals(user.getUsername()) && !expiration.before(new Date());
+    }
+
+    private Claims legacyExtractAllClaims(String jwt) {
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+}
@@ -0,0 +1,60 @@
+package id.ac.ui.cs.advprog.eventsphereauth.benchmark;
+
+import id.ac.ui.cs.advprog.eventsphereauth.repository.RevokedTokenRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.security.TokenRevocationService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.VerifiedToken;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-request revocation check against a denylist of {@code revokedEntries}
+ * tokens. {@code liveToken} is the usual case the Bloom filter clears on its own;
+ * {@code revokedToken} goes through to the exact set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenRevocationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int revokedEntries;
+
+    private TokenRevocationService revocationService;
+    private VerifiedToken live;
+    private VerifiedToken revoked;
+
+    @Setup
+    public void setUp() {
+        long lifetime = TimeUnit.HOURS.toMillis(1);
+        revocationService = new TokenRevocationService(
+                Mockito.mock(RevokedTokenRepository.class), revokedEntries, 0.01, lifetime);
+        for (int i = 0; i < revokedEntries; i++) {
+            revoked = token(lifetime);
+            revocationService.revoke(revoked);
+        }
+        live = token(lifetime);
+    }
+
+    private static VerifiedToken token(long lifetime) {
+        long now = System.currentTimeMillis();
+        return new VerifiedToken("bench@example.com", new Date(now), new Date(now + lifetime), "ROLE_USER",
+                UUID.randomUUID().toString(), UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    public boolean liveToken() {
+        return revocationService.isRevoked(live);
+    }
+
+    @Benchmark
+    public boolean revokedToken() {
+        return revocationService.isRevoked(revoked);
+    }
+}
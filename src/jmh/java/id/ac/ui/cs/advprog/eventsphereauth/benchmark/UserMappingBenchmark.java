@@ -0,0 +1,38 @@
+package id.ac.ui.cs.advprog.eventsphereauth.benchmark;
+
+import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import id.ac.ui.cs.advprog.eventsphereauth.service.UserServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMappingBenchmark {
+
+    private UserServiceImpl userService;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        // mapToUserResponse touches none of the collaborators
+        userService = new UserServiceImpl(null, null, null, null, null, null);
+        user = new User("bench", "bench@example.com", "0800", "password");
+        user.setId(UUID.randomUUID());
+        user.setRole(Role.USER);
+        user.setBalance(new BigDecimal("125000.50"));
+    }
+
+    @Benchmark
+    public UserResponse mapToUserResponse() {
+        return userService.mapToUserResponse(user);
+    }
+}
@@ -0,0 +1,171 @@
+package id.ac.ui.cs.advprog.eventsphereauth.cache;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache whose entries expire after a fixed time-to-live. Reads go
+ * straight to a {@link ConcurrentHashMap} and only stamp the entry's last access,
+ * so concurrent lookups never queue behind each other. Going over the bound evicts
+ * the least recently used of a small sample of entries (approximate LRU) instead
+ * of keeping a global access order.
+ */
+public class BoundedTtlCache<K, V> {
+
+    // Candidates compared per eviction; more tracks true LRU closer and costs more per put
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    // One evicting thread is enough; the others carry on slightly over the bound until it is done
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    // Where the last sample stopped, so successive evictions sweep the whole table
+    // rather than re-sampling its first buckets. Only touched by the evicting thread.
+    private Iterator<Map.Entry<K, Entry<V>>> hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedTtlCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, Clock.systemUTC());
+    }
+
+    public BoundedTtlCache(int maxSize, long ttlMillis, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Cache TTL must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= clock.millis()) {
+            remove(key, entry, expirations);
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        hits.increment();
+        return entry.value;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        long now = clock.millis();
+        entries.put(key, new Entry<>(value, now + ttlMillis));
+        if (entries.size() > maxSize && evicting.compareAndSet(false, true)) {
+            try {
+                evictOverflow(now);
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /** Entries dropped because their time-to-live ran out. */
+    public long expirationCount() {
+        return expirations.sum();
+    }
+
+    /** Live entries dropped to keep the cache within its size bound. */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private void evictOverflow(long now) {
+        Iterator<Map.Entry<K, Entry<V>>> it = hand == null ? entries.entrySet().iterator() : hand;
+        while (entries.size() > maxSize) {
+            Map.Entry<K, Entry<V>> victim = null;
+            boolean expired = false;
+            for (int sampled = 0; sampled < EVICTION_SAMPLE_SIZE; sampled++) {
+                if (!it.hasNext()) {
+                    it = entries.entrySet().iterator();
+                    if (!it.hasNext()) {
+                        break;
+                    }
+                }
+                Map.Entry<K, Entry<V>> candidate = it.next();
+                // An expired entry is always the right one to drop
+                if (candidate.getValue().expiresAt <= now) {
+                    victim = candidate;
+                    expired = true;
+                    break;
+                }
+                if (victim == null || candidate.getValue().lastAccess < victim.getValue().lastAccess) {
+                    victim = candidate;
+                }
+            }
+            if (victim == null) {
+                break;
+            }
+            remove(victim.getKey(), victim.getValue(), expired ? expirations : evictions);
+        }
+        hand = it;
+    }
+
+    private void remove(K key, Entry<V> entry, LongAdder counter) {
+        if (entries.remove(key, entry)) {
+            counter.increment();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -6,11 +6,14 @@ import id.ac.ui.cs.advprog.eventsphereauth.service.AdminService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/admin")
 @RequiredArgsConstructor
@@ -23,4 +26,11 @@ public class AdminController {
     public ResponseEntity<UserResponse> createAdminOrOrganizer(@RequestBody RegisterRequest request) throws IllegalAccessException {
         return ResponseEntity.ok(adminService.createAdminOrOrganizer(request));
     }
+
+    @PostMapping("/users/{id}/revoke-sessions")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> revokeSessions(@PathVariable UUID id) {
+        adminService.revokeSessions(id);
+        return ResponseEntity.noContent().build();
+    }
 }
\ No newline at end of file
@@ -2,29 +2,77 @@ package id.ac.ui.cs.advprog.eventsphereauth.controller;
 
 import id.ac.ui.cs.advprog.eventsphereauth.dto.AuthResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.LoginRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.RefreshRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.RegisterRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.security.PasswordHashingBusyException;
 import id.ac.ui.cs.advprog.eventsphereauth.service.AuthService;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.function.Supplier;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 public class AuthController {
 
+    private static final Meter.MeterProvider<Timer> REGISTER = requestTimer("auth.register");
+    private static final Meter.MeterProvider<Timer> LOGIN = requestTimer("auth.login");
+    private static final Meter.MeterProvider<Timer> REFRESH = requestTimer("auth.refresh");
+
     private final AuthService authService;
 
     @PostMapping("/register")
     public ResponseEntity<AuthResponse> register(@RequestBody RegisterRequest request) {
-        return ResponseEntity.ok(authService.register(request));
+        return ResponseEntity.ok(timed(REGISTER, () -> authService.register(request)));
     }
 
     @PostMapping("/login")
     public ResponseEntity<AuthResponse> login(@RequestBody LoginRequest request) {
-        return ResponseEntity.ok(authService.login(request));
+        return ResponseEntity.ok(timed(LOGIN, () -> authService.login(request)));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@RequestBody RefreshRequest request) {
+        return ResponseEntity.ok(timed(REFRESH, () -> authService.refresh(request)));
+    }
+
+    // Revokes the refresh family and the Bearer token the request was made with, if any
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody RefreshRequest request,
+                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        authService.logout(request, accessToken);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static Meter.MeterProvider<Timer> requestTimer(String name) {
+        return Timer.builder(name)
+                .publishPercentileHistogram()
+                .withRegistry(Metrics.globalRegistry);
+    }
+
+    private static <T> T timed(Meter.MeterProvider<Timer> timer, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        String outcome = "failure";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } catch (PasswordHashingBusyException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            sample.stop(timer.withTag("outcome", outcome));
+        }
     }
 }
\ No newline at end of file
@@ -1,13 +1,23 @@
 package id.ac.ui.cs.advprog.eventsphereauth.controller;
 
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceAmountRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceBatchRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceBatchResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.HoldRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.HoldResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.model.MinorUnits;
+import id.ac.ui.cs.advprog.eventsphereauth.service.BalanceBatchService;
+import id.ac.ui.cs.advprog.eventsphereauth.service.BalanceHoldService;
+import id.ac.ui.cs.advprog.eventsphereauth.service.IdempotencyService;
 import id.ac.ui.cs.advprog.eventsphereauth.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
-import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/balance")
@@ -15,31 +25,59 @@ import java.util.UUID;
 public class BalanceController {
 
     private final UserService userService;
+    private final IdempotencyService idempotencyService;
+    private final BalanceBatchService balanceBatchService;
+    private final BalanceHoldService balanceHoldService;
+
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BalanceBatchResponse> applyBatch(@RequestBody BalanceBatchRequest request) {
+        BalanceBatchResponse response = balanceBatchService.applyBatch(request.getOperations());
+        return ResponseEntity.ok(response);
+    }
 
     @PostMapping("/{id}/add")
-    public ResponseEntity<Void> addBalance(
+    public ResponseEntity<BigDecimal> addBalance(
             @PathVariable UUID id,
-            @RequestBody Map<String, Double> payload
+            @RequestBody BalanceAmountRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
-        Double amt = payload.get("amount");
-        BigDecimal amount = BigDecimal.valueOf(amt);
+        BigDecimal amount = MinorUnits.toDecimal(request.getAmount());
 
-        userService.addBalance(id.toString(), amount);
-        userService.getBalance(id.toString());
-        return ResponseEntity.ok().build();
+        BigDecimal balance = applyOnce(idempotencyKey, "add", id, amount,
+                () -> userService.addBalance(id.toString(), amount));
+        return ResponseEntity.ok(balance);
     }
 
     @PostMapping("/{id}/deduct")
-    public ResponseEntity<Void> deductBalance(
+    public ResponseEntity<BigDecimal> deductBalance(
             @PathVariable UUID id,
-            @RequestBody Map<String, Double> payload
+            @RequestBody BalanceAmountRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
-        Double amt = payload.get("amount");
-        BigDecimal amount = BigDecimal.valueOf(amt);
+        BigDecimal amount = MinorUnits.toDecimal(request.getAmount());
+
+        BigDecimal balance = applyOnce(idempotencyKey, "deduct", id, amount,
+                () -> userService.deductBalance(id.toString(), amount));
+        return ResponseEntity.ok(balance);
+    }
 
-        userService.deductBalance(id.toString(), amount);
-        userService.getBalance(id.toString());
-        return ResponseEntity.ok().build();
+    // Checkout: reserve first, then capture once the order is confirmed or release if it fails
+    @PostMapping("/{id}/holds")
+    public ResponseEntity<HoldResponse> reserveHold(@PathVariable UUID id, @RequestBody HoldRequest request) {
+        HoldResponse hold = balanceHoldService.reserve(id, MinorUnits.toDecimal(request.getAmount()),
+                request.getTtlSeconds());
+        return ResponseEntity.ok(hold);
+    }
+
+    @PostMapping("/holds/{holdId}/capture")
+    public ResponseEntity<HoldResponse> captureHold(@PathVariable UUID holdId) {
+        return ResponseEntity.ok(balanceHoldService.capture(holdId));
+    }
+
+    @PostMapping("/holds/{holdId}/release")
+    public ResponseEntity<HoldResponse> releaseHold(@PathVariable UUID holdId) {
+        return ResponseEntity.ok(balanceHoldService.release(holdId));
     }
 
     @GetMapping("/{id}/")
@@ -47,4 +85,12 @@ public class BalanceController {
         BigDecimal balance = userService.getBalance(id.toString());
         return ResponseEntity.ok(balance);
     }
+
+    private BigDecimal applyOnce(String idempotencyKey, String operation, UUID id, BigDecimal amount,
+                                 Supplier<BigDecimal> mutation) {
+        if (idempotencyKey == null) {
+            return mutation.get();
+        }
+        return idempotencyService.execute(idempotencyKey, operation, id.toString(), amount, mutation);
+    }
 }
@@ -0,0 +1,40 @@
+package id.ac.ui.cs.advprog.eventsphereauth.controller;
+
+import id.ac.ui.cs.advprog.eventsphereauth.security.JwtKeyRing;
+import id.ac.ui.cs.advprog.eventsphereauth.security.JwtService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Public keys other services use to verify our tokens locally. Clients may cache the
+ * set for max-age and then revalidate with If-None-Match, which Spring answers with
+ * a 304 while the ETag still matches.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtService jwtService;
+
+    @Value("${jwt.jwks.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, List<Map<String, Object>>>> jwks() {
+        JwtKeyRing.JwkSet jwkSet = jwtService.jwkSet();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic())
+                .eTag(jwkSet.eTag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("keys", jwkSet.keys()));
+    }
+}
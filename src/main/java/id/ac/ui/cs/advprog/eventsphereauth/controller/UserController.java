@@ -1,15 +1,21 @@
 package id.ac.ui.cs.advprog.eventsphereauth.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.UserPageResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserUpdateRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -19,11 +25,32 @@ import java.util.UUID;
 public class UserController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<UserResponse>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<UserPageResponse> getUsers(
+            @RequestParam(required = false) UUID after,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        return ResponseEntity.ok(userService.getUsers(after, limit));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        ObjectWriter writer = objectMapper.writerFor(UserResponse.class);
+        StreamingResponseBody body = out -> userService.exportUsers(user -> {
+            try {
+                out.write(writer.writeValueAsBytes(user));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/me")
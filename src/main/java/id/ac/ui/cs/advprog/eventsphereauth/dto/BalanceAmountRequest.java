@@ -0,0 +1,17 @@
+package id.ac.ui.cs.advprog.eventsphereauth.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceAmountRequest {
+    // Sent in major units, e.g. {"amount": 12.50}; held as minor units (1250)
+    @JsonDeserialize(using = MinorUnitsDeserializer.class)
+    private long amount;
+}
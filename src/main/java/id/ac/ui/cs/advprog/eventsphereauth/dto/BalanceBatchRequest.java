@@ -0,0 +1,16 @@
+package id.ac.ui.cs.advprog.eventsphereauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceBatchRequest {
+    private List<BalanceOperation> operations;
+}
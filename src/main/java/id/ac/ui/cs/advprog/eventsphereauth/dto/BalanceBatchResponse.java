@@ -0,0 +1,18 @@
+package id.ac.ui.cs.advprog.eventsphereauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceBatchResponse {
+    private int succeeded;
+    private int failed;
+    private List<BalanceOperationResult> results;
+}
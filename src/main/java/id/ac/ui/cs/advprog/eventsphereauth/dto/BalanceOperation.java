@@ -0,0 +1,20 @@
+package id.ac.ui.cs.advprog.eventsphereauth.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceOperation {
+    private UUID userId;
+    // Signed, in major units on the wire and minor units here; null when the field is missing
+    @JsonDeserialize(using = MinorUnitsDeserializer.class)
+    private Long delta;
+}
@@ -0,0 +1,20 @@
+package id.ac.ui.cs.advprog.eventsphereauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceOperationResult {
+    private UUID userId;
+    private BigDecimal delta;
+    private boolean success;
+    private String error;
+}
@@ -0,0 +1,19 @@
+package id.ac.ui.cs.advprog.eventsphereauth.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HoldRequest {
+    // Major units on the wire, minor units here, exactly as in BalanceAmountRequest
+    @JsonDeserialize(using = MinorUnitsDeserializer.class)
+    private long amount;
+    // Optional; defaults to app.balance.hold.default-ttl-ms
+    private Long ttlSeconds;
+}
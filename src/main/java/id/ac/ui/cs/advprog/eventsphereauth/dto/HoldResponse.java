@@ -0,0 +1,25 @@
+package id.ac.ui.cs.advprog.eventsphereauth.dto;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HoldResponse {
+    private UUID id;
+    private UUID userId;
+    private BigDecimal amount;
+    private HoldStatus status;
+    private Instant expiresAt;
+    // Available balance, i.e. with every open hold already taken out
+    private BigDecimal balance;
+}
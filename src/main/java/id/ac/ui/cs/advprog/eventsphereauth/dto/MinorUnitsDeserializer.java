@@ -0,0 +1,36 @@
+package id.ac.ui.cs.advprog.eventsphereauth.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import id.ac.ui.cs.advprog.eventsphereauth.model.MinorUnits;
+
+import java.io.IOException;
+
+/**
+ * Reads a JSON amount in major units ({@code 12.50} or {@code "12.50"}) as a
+ * {@code long} of minor units, straight from the parser's text buffer.
+ */
+public class MinorUnitsDeserializer extends StdDeserializer<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    public MinorUnitsDeserializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                && token != JsonToken.VALUE_STRING) {
+            return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+        }
+        try {
+            return MinorUnits.parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        } catch (IllegalArgumentException e) {
+            return (Long) ctxt.handleWeirdStringValue(Long.class, p.getText(), e.getMessage());
+        }
+    }
+}
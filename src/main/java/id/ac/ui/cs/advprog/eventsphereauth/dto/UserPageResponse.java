@@ -0,0 +1,19 @@
+package id.ac.ui.cs.advprog.eventsphereauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserPageResponse {
+    private List<UserResponse> users;
+    // Pass back as ?after= to fetch the next page; null on the last page
+    private UUID nextCursor;
+}
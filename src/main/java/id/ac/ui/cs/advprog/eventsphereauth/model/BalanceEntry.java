@@ -0,0 +1,49 @@
+package id.ac.ui.cs.advprog.eventsphereauth.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One balance change, never updated or deleted. A user's balance is their snapshot
+ * on {@code users.balance} plus every entry after {@code users.balance_entry_id}.
+ * Rows are written with plain INSERTs (see BalanceMutationRepositoryImpl), so they
+ * outlive the user they belong to and keep the audit trail intact.
+ */
+@Entity
+@Table(name = "balance_ledger", indexes = @Index(name = "idx_balance_ledger_user_id", columnList = "user_id, id"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", updatable = false, nullable = false)
+    private Long id;
+
+    @Column(name = "user_id", updatable = false, nullable = false)
+    private UUID userId;
+
+    // Signed: credits are positive, debits negative
+    @Column(name = "delta", updatable = false, nullable = false)
+    private BigDecimal delta;
+
+    // credit, debit, batch, hold, release or expire
+    @Column(name = "operation", updatable = false, nullable = false, length = 16)
+    private String operation;
+
+    // The balance hold a hold, release or expire entry belongs to
+    @Column(name = "reference_id", updatable = false)
+    private UUID referenceId;
+
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private Instant createdAt;
+}
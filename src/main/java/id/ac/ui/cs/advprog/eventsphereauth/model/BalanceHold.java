@@ -0,0 +1,68 @@
+package id.ac.ui.cs.advprog.eventsphereauth.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Funds set aside for a checkout. Reserving appends a {@code hold} debit to the
+ * ledger, so the held amount is already out of the available balance; capturing
+ * only marks the hold, and releasing or expiring appends the matching credit.
+ */
+@Entity
+@Table(name = "balance_holds", indexes = {
+        @Index(name = "idx_balance_holds_user_id", columnList = "user_id"),
+        @Index(name = "idx_balance_holds_status_created_at", columnList = "status, created_at")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceHold implements Persistable<UUID> {
+
+    @Id
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "user_id", updatable = false, nullable = false)
+    private UUID userId;
+
+    @Column(name = "amount", updatable = false, nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private HoldStatus status;
+
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", updatable = false, nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "resolved_at")
+    private Instant resolvedAt;
+
+    // The id is assigned up front, so tell Spring Data to INSERT rather than merge
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
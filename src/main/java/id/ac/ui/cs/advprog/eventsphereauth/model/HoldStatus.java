@@ -0,0 +1,5 @@
+package id.ac.ui.cs.advprog.eventsphereauth.model;
+
+public enum HoldStatus {
+    HELD, CAPTURED, RELEASED, EXPIRED
+}
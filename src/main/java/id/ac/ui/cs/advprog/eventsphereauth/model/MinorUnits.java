@@ -0,0 +1,86 @@
+package id.ac.ui.cs.advprog.eventsphereauth.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money as a {@code long} count of minor units (cents) at a fixed currency scale.
+ * The database keeps balances as {@code numeric} at the same scale, so a minor-unit
+ * value and its column value are always the same number. Conversions are exact:
+ * an amount finer than the scale is rejected, never rounded.
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public static long of(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount must fit in " + SCALE + " decimal places: " + amount);
+        }
+    }
+
+    public static long parse(String text) {
+        return parse(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Parses a plain decimal such as {@code 12}, {@code 12.5} or {@code -0.05} straight
+     * into minor units, without going through a double or a BigDecimal. Zeros past the
+     * scale are accepted; any other digit there is an error.
+     */
+    public static long parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long units = 0;
+        int fractionDigits = -1;
+        boolean sawDigit = false;
+        try {
+            for (; i < end; i++) {
+                char c = chars[i];
+                if (c == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                    continue;
+                }
+                if (c < '0' || c > '9') {
+                    throw invalid(chars, offset, length);
+                }
+                sawDigit = true;
+                if (fractionDigits >= 0 && ++fractionDigits > SCALE) {
+                    if (c != '0') {
+                        throw new IllegalArgumentException("Amount must fit in " + SCALE + " decimal places: "
+                                + new String(chars, offset, length));
+                    }
+                    continue;
+                }
+                units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+            }
+            for (int f = Math.max(fractionDigits, 0); f < SCALE; f++) {
+                units = Math.multiplyExact(units, 10);
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount out of range: " + new String(chars, offset, length));
+        }
+        if (!sawDigit) {
+            throw invalid(chars, offset, length);
+        }
+        return negative ? -units : units;
+    }
+
+    private static IllegalArgumentException invalid(char[] chars, int offset, int length) {
+        return new IllegalArgumentException("Not a plain decimal amount: " + new String(chars, offset, length));
+    }
+}
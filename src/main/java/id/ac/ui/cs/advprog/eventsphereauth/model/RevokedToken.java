@@ -0,0 +1,40 @@
+package id.ac.ui.cs.advprog.eventsphereauth.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A denylist entry: either one token by its {@code jti}, or every token a user was
+ * issued up to {@code revokedAt} (a user epoch). The row is only needed until the
+ * tokens it covers have expired on their own.
+ */
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RevokedToken {
+
+    public static final String JTI_PREFIX = "jti:";
+    public static final String USER_PREFIX = "user:";
+
+    // "jti:<token id>" or "user:<user id>"
+    @Id
+    @Column(name = "id", length = 64, updatable = false, nullable = false)
+    private String id;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
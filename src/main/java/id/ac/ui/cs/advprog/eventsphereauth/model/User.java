@@ -2,7 +2,9 @@ package id.ac.ui.cs.advprog.eventsphereauth.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Generated;
+import lombok.ToString;
 import org.hibernate.annotations.GenericGenerator;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -11,6 +13,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 @Entity
@@ -41,15 +44,26 @@ public class User implements UserDetails {
     @Column(name = "role", nullable = false)
     private Role role = Role.USER;
 
-    @Column(name = "balance")
-    private BigDecimal balance;
+    // Snapshot in minor units as of ledger entry balanceEntryId; only the snapshot job moves it after insert
+    @Convert(converter = MinorUnitsConverter.class)
+    @Column(name = "balance", updatable = false, precision = 38, scale = MinorUnits.SCALE)
+    private Long balance;
+
+    @Column(name = "balance_entry_id", insertable = false, updatable = false)
+    private Long balanceEntryId;
+
+    // Snapshot plus unfolded ledger entries, set only when the loading query summed them; never persisted
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private BigDecimal currentBalance;
 
     @PrePersist
     @PreUpdate
     private void enforceBalanceRule() {
         if (role == Role.USER) {
-            if (balance == null) balance = BigDecimal.ZERO;
-            if (balance.compareTo(BigDecimal.ZERO) < 0) {
+            if (balance == null) balance = 0L;
+            if (balance < 0) {
                 throw new IllegalArgumentException("Balance cannot be negative.");
             }
         } else {
@@ -57,11 +71,40 @@ public class User implements UserDetails {
         }
     }
 
+    // Emails are stored trimmed and lower-cased so the unique constraint is case-insensitive
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public void setEmail(String email) {
+        this.email = normalizeEmail(email);
+    }
+
+    public BigDecimal getBalance() {
+        return balance == null ? null : MinorUnits.toDecimal(balance);
+    }
+
+    // Falls back to the snapshot, which is exact for a user with no unfolded ledger entries
+    public BigDecimal getCurrentBalance() {
+        return currentBalance != null ? currentBalance : getBalance();
+    }
+
+    public Long getBalanceMinorUnits() {
+        return balance;
+    }
+
     public void setBalance(BigDecimal newBalance) {
+        if (newBalance == null) {
+            throw new IllegalArgumentException("Balance must be non-negative.");
+        }
+        setBalanceMinorUnits(MinorUnits.of(newBalance));
+    }
+
+    public void setBalanceMinorUnits(long newBalance) {
         if (role != Role.USER) {
             throw new IllegalStateException("Only ATTENDEE can have balance.");
         }
-        if (newBalance == null || newBalance.compareTo(BigDecimal.ZERO) < 0) {
+        if (newBalance < 0) {
             throw new IllegalArgumentException("Balance must be non-negative.");
         }
         this.balance = newBalance;
@@ -72,7 +115,7 @@ public class User implements UserDetails {
         if (role != Role.USER) {
             this.balance = null;
         } else if (this.balance == null) {
-            this.balance = BigDecimal.ZERO;
+            this.balance = 0L;
         }
     }
 
@@ -81,7 +124,7 @@ public class User implements UserDetails {
 
     public User(String username, String email, String phoneNumber, String password) {
         this.username = username;
-        this.email = email;
+        this.email = normalizeEmail(email);
         this.password = password;
         this.phoneNumber = phoneNumber;
     }
@@ -0,0 +1,14 @@
+package id.ac.ui.cs.advprog.eventsphereauth.repository;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.BalanceEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+// Read side of the ledger; entries are only ever written through BalanceMutationRepository
+@Repository
+public interface BalanceEntryRepository extends JpaRepository<BalanceEntry, Long> {
+    List<BalanceEntry> findByUserIdOrderById(UUID userId);
+}
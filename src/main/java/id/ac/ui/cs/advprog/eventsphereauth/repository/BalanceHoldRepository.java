@@ -0,0 +1,39 @@
+package id.ac.ui.cs.advprog.eventsphereauth.repository;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.BalanceHold;
+import id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface BalanceHoldRepository extends JpaRepository<BalanceHold, UUID> {
+
+    // Each transition is a conditional UPDATE out of HELD, so of two racing resolutions exactly one wins
+    @Modifying(clearAutomatically = true)
+    @Query("update BalanceHold h set h.status = id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus.CAPTURED, " +
+            "h.resolvedAt = :now where h.id = :id and h.status = id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus.HELD " +
+            "and h.expiresAt > :now")
+    int capture(@Param("id") UUID id, @Param("now") Instant now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update BalanceHold h set h.status = id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus.RELEASED, " +
+            "h.resolvedAt = :now where h.id = :id and h.status = id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus.HELD")
+    int release(@Param("id") UUID id, @Param("now") Instant now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update BalanceHold h set h.status = id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus.EXPIRED, " +
+            "h.resolvedAt = :now where h.id = :id and h.status = id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus.HELD " +
+            "and h.expiresAt <= :now")
+    int expire(@Param("id") UUID id, @Param("now") Instant now);
+
+    List<BalanceHold> findByStatus(HoldStatus status);
+
+    List<BalanceHold> findByStatusAndCreatedAtGreaterThanEqual(HoldStatus status, Instant since);
+}
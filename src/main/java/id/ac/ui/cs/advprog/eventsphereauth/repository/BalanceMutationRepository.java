@@ -0,0 +1,33 @@
+package id.ac.ui.cs.advprog.eventsphereauth.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Balance changes as appends to the {@code balance_ledger}, each handing back the
+ * balance it produced. Credits are a single guarded INSERT and never lock the user;
+ * debits lock the user row only long enough to check funds and append, so a busy
+ * account never has its row rewritten per operation. An empty result means the
+ * guard refused (unknown user, not an attendee, or insufficient funds for a debit).
+ */
+public interface BalanceMutationRepository {
+    Optional<BigDecimal> creditBalance(UUID id, BigDecimal amount);
+    Optional<BigDecimal> debitBalance(UUID id, BigDecimal amount);
+
+    // As above, labelled with the ledger operation and the hold the entry belongs to, if any
+    Optional<BigDecimal> creditBalance(UUID id, BigDecimal amount, String operation, UUID referenceId);
+    Optional<BigDecimal> debitBalance(UUID id, BigDecimal amount, String operation, UUID referenceId);
+
+    // Snapshot plus the entries after it; empty unless the user is an attendee
+    Optional<BigDecimal> currentBalance(UUID id);
+
+    /**
+     * Locks the attendees among {@code ids} against concurrent debits until the
+     * transaction ends and returns their current balances. Only those users appear
+     * in the result.
+     */
+    Map<UUID, BigDecimal> lockBalances(Collection<UUID> ids);
+}
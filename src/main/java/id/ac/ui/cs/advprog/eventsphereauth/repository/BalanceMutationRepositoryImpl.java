@@ -0,0 +1,131 @@
+package id.ac.ui.cs.advprog.eventsphereauth.repository;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Supplier;
+
+public class BalanceMutationRepositoryImpl implements BalanceMutationRepository {
+
+    // Read in one statement, so the snapshot and the entries after it come from the same view
+    public static final String CURRENT_BALANCE = "u.balance + coalesce((select sum(l.delta) from balance_ledger l "
+            + "where l.user_id = u.id and l.id > coalesce(u.balance_entry_id, 0)), 0)";
+
+    private static final String APPEND_ENTRY_SQL =
+            "insert into balance_ledger (user_id, delta, operation, reference_id, created_at) values (?, ?, ?, ?, ?)";
+
+    private static final String CREDIT_SQL = "insert into balance_ledger (user_id, delta, operation, reference_id, created_at) "
+            + "select id, ?, ?, ?, ? from users where id = ? and role = 'USER'";
+    private static final String LOCK_SQL = "select id from users where id = ? and role = 'USER' for update";
+    private static final String BALANCE_SQL = "select " + CURRENT_BALANCE + " from users u where u.id = ? and u.role = 'USER'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BalanceMutationRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public Optional<BigDecimal> creditBalance(UUID id, BigDecimal amount) {
+        return creditBalance(id, amount, "credit", null);
+    }
+
+    @Override
+    @Transactional
+    public Optional<BigDecimal> debitBalance(UUID id, BigDecimal amount) {
+        return debitBalance(id, amount, "debit", null);
+    }
+
+    @Override
+    @Transactional
+    public Optional<BigDecimal> creditBalance(UUID id, BigDecimal amount, String operation, UUID referenceId) {
+        return detached(id, () -> jdbcTemplate.update(CREDIT_SQL, amount, operation, referenceId, now(), id) == 0
+                ? Optional.empty()
+                : read(id));
+    }
+
+    @Override
+    @Transactional
+    public Optional<BigDecimal> debitBalance(UUID id, BigDecimal amount, String operation, UUID referenceId) {
+        return detached(id, () -> {
+            // Serializes debits on this user; credits only add, so they need not wait
+            if (jdbcTemplate.queryForList(LOCK_SQL, UUID.class, id).isEmpty()) {
+                return Optional.empty();
+            }
+            BigDecimal current = read(id).orElseThrow();
+            if (current.compareTo(amount) < 0) {
+                return Optional.empty();
+            }
+            jdbcTemplate.update(APPEND_ENTRY_SQL, id, amount.negate(), operation, referenceId, now());
+            return Optional.of(current.subtract(amount));
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<BigDecimal> currentBalance(UUID id) {
+        return read(id);
+    }
+
+    @Override
+    @Transactional
+    public Map<UUID, BigDecimal> lockBalances(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        // One ordered statement, so two batches touching the same users lock them in the same order
+        jdbcTemplate.queryForList("select id from users where id in (" + in + ") and role = 'USER' order by id for update",
+                UUID.class, args);
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        jdbcTemplate.query("select u.id, " + CURRENT_BALANCE + " from users u where u.id in (" + in + ") and u.role = 'USER'",
+                rs -> {
+                    balances.put(rs.getObject(1, UUID.class), rs.getBigDecimal(2));
+                }, args);
+        return balances;
+    }
+
+    private Optional<BigDecimal> read(UUID id) {
+        List<BigDecimal> rows = jdbcTemplate.queryForList(BALANCE_SQL, BigDecimal.class, id);
+        return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+    }
+
+    private <T> T detached(UUID id, Supplier<T> mutation) {
+        // No pending writes are lost, and only this user is evicted afterwards: anything
+        // else the caller's transaction has loaded stays managed
+        entityManager.flush();
+        try {
+            return mutation.get();
+        } finally {
+            evict(id);
+        }
+    }
+
+    // Detaches the user only if this persistence context already holds it; never loads it
+    private void evict(UUID id) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(User.class);
+        Object managed = session.getPersistenceContextInternal().getEntity(session.generateEntityKey(id, persister));
+        if (managed != null) {
+            entityManager.detach(managed);
+        }
+    }
+
+    private static Timestamp now() {
+        return Timestamp.from(Instant.now());
+    }
+}
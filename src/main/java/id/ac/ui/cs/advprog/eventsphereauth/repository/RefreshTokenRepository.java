@@ -0,0 +1,35 @@
+package id.ac.ui.cs.advprog.eventsphereauth.repository;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+    // A conditional UPDATE by primary key, so of two concurrent refreshes exactly one wins
+    @Modifying(clearAutomatically = true)
+    @Query("update RefreshToken t set t.rotatedAt = :now " +
+            "where t.tokenHash = :tokenHash and t.rotatedAt is null and t.expiresAt > :now")
+    int markRotated(@Param("tokenHash") String tokenHash, @Param("now") Instant now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("delete from RefreshToken t where t.familyId = :familyId")
+    int deleteFamily(@Param("familyId") UUID familyId);
+
+    @Modifying(clearAutomatically = true)
+    @Query("delete from RefreshToken t where t.userId = :userId")
+    int deleteByUser(@Param("userId") UUID userId);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from RefreshToken t where t.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") Instant cutoff);
+}
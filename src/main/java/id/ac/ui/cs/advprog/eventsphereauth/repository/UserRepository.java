@@ -1,14 +1,58 @@
 package id.ac.ui.cs.advprog.eventsphereauth.repository;
 
+import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID> {
+public interface UserRepository extends JpaRepository<User, UUID>, BalanceMutationRepository {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    // The user's snapshot plus the ledger entries after it, as in BalanceMutationRepositoryImpl
+    String CURRENT_BALANCE = "u.balance + coalesce((select sum(e.delta) " +
+            "from BalanceEntry e where e.userId = u.id and e.id > coalesce(u.balanceEntryId, 0)), 0)";
+
+    // Read paths select only the response columns: no password hash, no managed entity, no dirty-check snapshot.
+    String USER_RESPONSE = "select new id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse(" +
+            "u.id, u.username, u.email, u.phoneNumber, u.role, " + CURRENT_BALANCE + ") from User u ";
+
+    // Login and refresh need the entity to sign a token and the current balance to answer with, in one query
+    String USER_WITH_BALANCE = "select new id.ac.ui.cs.advprog.eventsphereauth.repository.UserWithBalance(" +
+            "u, " + CURRENT_BALANCE + ") from User u ";
+
+    @Query(USER_WITH_BALANCE + "where u.email = :email")
+    Optional<UserWithBalance> findWithBalanceByEmail(@Param("email") String email);
+
+    @Query(USER_WITH_BALANCE + "where u.id = :id")
+    Optional<UserWithBalance> findWithBalanceById(@Param("id") UUID id);
+
+    @Query(USER_RESPONSE + "where u.id = :id")
+    Optional<UserResponse> findResponseById(@Param("id") UUID id);
+
+    @Query(USER_RESPONSE + "where u.email = :email")
+    Optional<UserResponse> findResponseByEmail(@Param("email") String email);
+
+    // Keyset pagination: pages are "ids after the cursor", so deep pages cost the same as the first
+    @Query(USER_RESPONSE + "order by u.id")
+    List<UserResponse> findResponsesOrderById(Limit limit);
+
+    @Query(USER_RESPONSE + "where u.id > :after order by u.id")
+    List<UserResponse> findResponsesAfter(@Param("after") UUID after, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(USER_RESPONSE + "order by u.id")
+    Stream<UserResponse> streamResponsesOrderById();
+}
@@ -0,0 +1,19 @@
+package id.ac.ui.cs.advprog.eventsphereauth.repository;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+
+import java.math.BigDecimal;
+
+/**
+ * A user loaded together with its ledger-inclusive balance. {@link #user()} hands
+ * back the entity with that balance attached, so the response built from it needs
+ * no second read.
+ */
+public record UserWithBalance(User user, BigDecimal balance) {
+
+    @Override
+    public User user() {
+        user.setCurrentBalance(balance);
+        return user;
+    }
+}
@@ -1,13 +1,18 @@
 package id.ac.ui.cs.advprog.eventsphereauth.security;
 
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
 import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserWithBalance;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -18,18 +23,34 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 public class ApplicationConfig {
 
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        return username -> userDetailsCache.get(User.normalizeEmail(username), email -> userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found")));
     }
 
+    /**
+     * Only used for username/password login. It reads the user straight from the
+     * database rather than the principal cache, so the principal it returns is fresh
+     * enough to sign a token and build the login response from. The same query sums
+     * the unfolded ledger entries, so the response balance costs no second read.
+     */
     @Bean
-    public AuthenticationProvider authenticationProvider() {
-        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
-        provider.setUserDetailsService(userDetailsService());
-        provider.setPasswordEncoder(passwordEncoder());
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider() {
+            @Override
+            protected void additionalAuthenticationChecks(UserDetails userDetails,
+                                                          UsernamePasswordAuthenticationToken authentication) {
+                AuthStages.LOGIN.time(AuthStages.VERIFY, () -> super.additionalAuthenticationChecks(userDetails, authentication));
+            }
+        };
+        provider.setUserDetailsService(username -> AuthStages.LOGIN.time(AuthStages.LOOKUP,
+                () -> userRepository.findWithBalanceByEmail(User.normalizeEmail(username))
+                        .map(UserWithBalance::user)
+                        .orElseThrow(() -> new UsernameNotFoundException("User not found"))));
+        provider.setPasswordEncoder(passwordEncoder);
         return provider;
     }
 
@@ -38,8 +59,16 @@ public class ApplicationConfig {
         return config.getAuthenticationManager();
     }
 
+    // bcrypt runs on its own pool so a login storm is shed with 503s instead of starving Tomcat
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${app.auth.hashing.threads:0}") int threads,
+            @Value("${app.auth.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${app.auth.hashing.max-wait-ms:5000}") long maxWaitMillis,
+            @Value("${app.auth.hashing.retry-after-seconds:1}") long retryAfterSeconds
+    ) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), poolSize, queueCapacity,
+                maxWaitMillis, retryAfterSeconds);
     }
 }
\ No newline at end of file
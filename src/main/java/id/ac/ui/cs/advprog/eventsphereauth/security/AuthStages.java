@@ -0,0 +1,44 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-stage timers for the auth pipelines. Login records lookup, verify, sign and
+ * map under {@code auth.login.stage}; registration records hash, insert, sign and
+ * map under {@code auth.register.stage}. Both are tagged by stage.
+ */
+public final class AuthStages {
+
+    public static final String LOOKUP = "lookup";
+    public static final String VERIFY = "verify";
+    public static final String HASH = "hash";
+    public static final String INSERT = "insert";
+    public static final String SIGN = "sign";
+    public static final String MAP = "map";
+
+    public static final AuthStages LOGIN =
+            new AuthStages("auth.login.stage", "Time spent in each stage of a login");
+    public static final AuthStages REGISTRATION =
+            new AuthStages("auth.register.stage", "Time spent in each stage of a registration");
+
+    private final Meter.MeterProvider<Timer> timers;
+
+    private AuthStages(String name, String description) {
+        this.timers = Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .withRegistry(Metrics.globalRegistry);
+    }
+
+    public <T> T time(String stage, Supplier<T> work) {
+        return timers.withTag("stage", stage).record(work);
+    }
+
+    public void time(String stage, Runnable work) {
+        timers.withTag("stage", stage).record(work);
+    }
+}
@@ -0,0 +1,13 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.util.UUID;
+
+public record JwtPrincipal(UUID id, String email, String role) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -1,32 +1,89 @@
 package id.ac.ui.cs.advprog.eventsphereauth.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.GrantedAuthority; // Import GrantedAuthority
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret-key}")
-    private String secretKey;
+    private static final Meter.MeterProvider<Timer> JWT_TIMER = Timer.builder("auth.jwt")
+            .description("Time spent signing or verifying a JWT")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(1_000))
+            .maximumExpectedValue(Duration.ofMillis(100))
+            .withRegistry(Metrics.globalRegistry);
+
+    // HS256 signing secret; in RS256 mode only kept to verify tokens issued before the switch
+    @Value("${jwt.secret-key:}")
+    private volatile String secretKey;
+
+    // Optional file holding the HS256 secret instead, re-read on every reload
+    @Value("${jwt.secret-key-location:}")
+    private String secretKeyLocation;
+
+    // HS256 (shared secret) or RS256 (key ring below, verifiable by anyone through the JWKS)
+    @Value("${jwt.signing.algorithm:HS256}")
+    private String signingAlgorithm;
+
+    // Comma-separated PKCS#8 PEM locations, optionally "kid=location"; the first one signs
+    @Value("${jwt.signing.rsa-keys:}")
+    private String rsaKeys;
+
+    // How long a key keeps verifying after it stops signing; 0 means one token lifetime
+    @Value("${jwt.signing.retired-key-ttl-ms:0}")
+    private long retiredKeyTtlMs;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    // Heap budget for verified tokens; 0 disables the cache
+    @Value("${jwt.token-cache.max-bytes:0}")
+    private long tokenCacheMaxBytes;
+
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+    private final ReentrantLock rotationLock = new ReentrantLock();
+
+    private volatile SigningState signingState;
+
+    @PostConstruct
+    void init() {
+        if (!isRs256() && !"HS256".equalsIgnoreCase(signingAlgorithm)) {
+            throw new IllegalStateException("Unsupported jwt.signing.algorithm: " + signingAlgorithm);
+        }
+        signingState();
+    }
+
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verifyToken(token).subject();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -44,19 +101,124 @@ public class JwtService {
             extraClaims.put("role", "ROLE_" + user.getRole().name());
         }
 
-        return Jwts
-                .builder()
-                .setClaims(extraClaims)
-                .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
-                .compact();
+        long now = System.currentTimeMillis();
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            SigningState state = signingState();
+            JwtBuilder builder = Jwts
+                    .builder()
+                    .setClaims(extraClaims)
+                    .setSubject(userDetails.getUsername())
+                    // The jti lets a single token be revoked
+                    .setId(UUID.randomUUID().toString())
+                    .setIssuedAt(new Date(now))
+                    .setExpiration(new Date(now + jwtExpiration));
+            JwtKeyRing.SigningKey active = state.keyRing().active();
+            String token = builder.setHeaderParam(JwsHeader.KEY_ID, active.kid())
+                    .signWith(active.signingKey(), active.algorithm())
+                    .compact();
+            outcome = "success";
+            return token;
+        } finally {
+            recordJwt("sign", outcome, start);
+        }
+    }
+
+    /**
+     * Parses and verifies a token, or returns the claims cached for it. The
+     * {@code auth.jwt} verify timer tells a cache hit ("cached") apart from a full
+     * signature check ("verified") and from the two failure modes.
+     */
+    public VerifiedToken verifyToken(String token) {
+        long start = System.nanoTime();
+        String outcome = "invalid";
+        try {
+            SigningState state = signingState();
+            VerifiedToken cached = state.tokenCache() == null ? null : state.tokenCache().get(token);
+            if (cached != null) {
+                outcome = "cached";
+                return cached;
+            }
+            VerifiedToken verified = VerifiedToken.from(state.parser().parseClaimsJws(token).getBody());
+            if (state.tokenCache() != null) {
+                state.tokenCache().put(token, verified);
+            }
+            outcome = "verified";
+            return verified;
+        } catch (ExpiredJwtException e) {
+            outcome = "expired";
+            throw e;
+        } finally {
+            recordJwt("verify", outcome, start);
+        }
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(verifyToken(token), userDetails);
+    }
+
+    public boolean isTokenValid(VerifiedToken token, UserDetails userDetails) {
+        return token.subject() != null
+                && token.subject().equals(userDetails.getUsername())
+                && !token.isExpired();
+    }
+
+    /**
+     * Makes {@code newSecretKey} the HS256 signing key. The previous key is retired
+     * rather than dropped, so tokens it signed stay valid for one more lifetime. A
+     * secret too weak for HS256 is rejected before anything changes.
+     */
+    public void rotateSecretKey(String newSecretKey) {
+        JwtKeyRing.SigningKey key = JwtKeyRing.SigningKey.hmac(newSecretKey);
+        rotationLock.lock();
+        try {
+            rotateKeys(List.of(key));
+            this.secretKey = newSecretKey;
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    /**
+     * Makes {@code keys} the live set, the first one signing. Live keys left out are
+     * retired for {@code jwt.signing.retired-key-ttl-ms}. In RS256 mode, or with
+     * {@code jwt.secret-key-location}, the next {@link #reloadKeys} puts the
+     * configured keys back.
+     */
+    public void rotateKeys(List<JwtKeyRing.SigningKey> keys) {
+        rotationLock.lock();
+        try {
+            SigningState current = signingState();
+            apply(current, current.keyRing().rotate(keys, System.currentTimeMillis(), retiredKeyTtl()));
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    /**
+     * Re-reads the configured keys and drops retired keys whose time is up. A key
+     * file that cannot be read or parsed fails the reload and leaves the ring as it
+     * was, so a half-written file is picked up on a later run instead.
+     */
+    @Scheduled(fixedDelayString = "${jwt.signing.reload-interval-ms:60000}",
+            initialDelayString = "${jwt.signing.reload-interval-ms:60000}")
+    public void reloadKeys() {
+        rotationLock.lock();
+        try {
+            SigningState current = signingState();
+            List<JwtKeyRing.SigningKey> configured = isRs256() || hasSecretKeyLocation()
+                    ? configuredKeys()
+                    : List.copyOf(current.keyRing().keys());
+            apply(current, current.keyRing().rotate(configured, System.currentTimeMillis(), retiredKeyTtl()));
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    // Public keys for downstream verification; never the HS256 secret
+    public JwtKeyRing.JwkSet jwkSet() {
+        return signingState().keyRing().jwkSet();
     }
 
     protected boolean isTokenExpired(String token) {
@@ -64,20 +226,126 @@ public class JwtService {
     }
 
     protected Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return verifyToken(token).expiration();
     }
 
     protected Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return signingState().parser()
                 .parseClaimsJws(token)
                 .getBody();
     }
 
     protected Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingState().keyRing().active().signingKey();
+    }
+
+    private SigningState signingState() {
+        SigningState state = signingState;
+        if (state != null) {
+            return state;
+        }
+        rotationLock.lock();
+        try {
+            if (signingState == null) {
+                signingState = SigningState.of(initialKeyRing(), newTokenCache());
+            }
+            return signingState;
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    // Callers hold rotationLock
+    private void apply(SigningState current, JwtKeyRing next) {
+        if (next == current.keyRing()) {
+            return;
+        }
+        // Cached tokens stay trustworthy as long as every key they could have been verified with still is
+        VerifiedTokenCache tokenCache = next.trustsAllOf(current.keyRing()) ? current.tokenCache() : newTokenCache();
+        signingState = SigningState.of(next, tokenCache);
+    }
+
+    private JwtKeyRing initialKeyRing() {
+        JwtKeyRing ring = new JwtKeyRing(configuredKeys());
+        String secret = currentSecret();
+        if (isRs256() && !secret.isBlank()) {
+            ring = ring.retire(JwtKeyRing.SigningKey.hmac(secret), System.currentTimeMillis() + retiredKeyTtl());
+        }
+        return ring;
+    }
+
+    private List<JwtKeyRing.SigningKey> configuredKeys() {
+        if (isRs256()) {
+            return JwtKeyRing.loadKeys(rsaKeys, resourceLoader);
+        }
+        String secret = currentSecret();
+        if (secret.isBlank()) {
+            throw new IllegalStateException("No JWT signing key: set jwt.secret-key or jwt.signing.rsa-keys");
+        }
+        return List.of(JwtKeyRing.SigningKey.hmac(secret));
+    }
+
+    private String currentSecret() {
+        if (hasSecretKeyLocation()) {
+            return JwtKeyRing.read(resourceLoader.getResource(secretKeyLocation)).trim();
+        }
+        return secretKey == null ? "" : secretKey;
+    }
+
+    private boolean hasSecretKeyLocation() {
+        return secretKeyLocation != null && !secretKeyLocation.isBlank();
+    }
+
+    private boolean isRs256() {
+        return "RS256".equalsIgnoreCase(signingAlgorithm);
+    }
+
+    private long retiredKeyTtl() {
+        return retiredKeyTtlMs > 0 ? retiredKeyTtlMs : jwtExpiration;
+    }
+
+    private static void recordJwt(String operation, String outcome, long startNanos) {
+        JWT_TIMER.withTags("operation", operation, "outcome", outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private VerifiedTokenCache newTokenCache() {
+        return tokenCacheMaxBytes > 0 ? new VerifiedTokenCache(tokenCacheMaxBytes, jwtExpiration) : null;
+    }
+
+    // The token cache belongs to the keys it was verified with, so dropping a key drops it
+    private record SigningState(JwtKeyRing keyRing, JwtParser parser, VerifiedTokenCache tokenCache) {
+
+        static SigningState of(JwtKeyRing keyRing, VerifiedTokenCache tokenCache) {
+            JwtParser parser = Jwts.parserBuilder()
+                    .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                        // The adapter declares the raw JwsHeader, so the override has to as well
+                        @Override
+                        @SuppressWarnings("rawtypes")
+                        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                            return verificationKey(header, keyRing);
+                        }
+                    })
+                    .build();
+            return new SigningState(keyRing, parser, tokenCache);
+        }
+
+        // Tokens without a kid predate the ring and were signed with the oldest HS256 secret.
+        // The alg check keeps an HS256 token naming an RSA kid off the public key.
+        private static Key verificationKey(JwsHeader<?> header, JwtKeyRing keyRing) {
+            long now = System.currentTimeMillis();
+            String kid = header.getKeyId();
+            JwtKeyRing.SigningKey key = kid != null ? keyRing.find(kid, now) : null;
+            if (kid != null && key == null) {
+                throw new UnsupportedJwtException("Unknown signing key id: " + kid);
+            }
+            if (kid == null && "HS256".equals(header.getAlgorithm())) {
+                key = keyRing.legacyHmac(now);
+            }
+            if (key == null || !key.algorithm().getValue().equals(header.getAlgorithm())) {
+                throw new UnsupportedJwtException("No key to verify a " + header.getAlgorithm() + " token");
+            }
+            return key.verificationKey();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+
+/**
+ * Carries the caller's security context onto work handed to the application task
+ * executor (async MVC requests such as the NDJSON export, {@code @Async} methods).
+ * Boot applies this decorator to that executor in both thread modes, so code on
+ * the worker sees the same {@code SecurityContextHolder} as the request that
+ * submitted it and the worker's own context is restored afterwards.
+ */
+@Configuration
+public class SecurityContextPropagationConfig {
+
+    @Bean
+    public TaskDecorator securityContextTaskDecorator() {
+        // A null context means "capture whatever the submitting thread holds"
+        return runnable -> DelegatingSecurityContextRunnable.create(runnable, null);
+    }
+}
@@ -0,0 +1,211 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import id.ac.ui.cs.advprog.eventsphereauth.cache.BloomFilter;
+import id.ac.ui.cs.advprog.eventsphereauth.model.RevokedToken;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Denylist of revoked access tokens, persisted in {@code revoked_tokens} and mirrored
+ * in memory so the per-request check never touches the database. A Bloom filter in
+ * front of the exact maps answers the common "not revoked" case with a few probes;
+ * only a possible hit reaches the maps.
+ * <p>
+ * Other instances' revocations arrive through {@link #sync}. Entries are kept only
+ * until the tokens they cover have expired, and {@link #prune} rebuilds the filter
+ * from what is left, since a Bloom filter cannot forget keys.
+ */
+@Service
+public class TokenRevocationService {
+
+    // Keeps a user id and a jti with the same text from sharing filter bits
+    private static final long USER_KEY_SALT = 0x9e3779b97f4a7c15L;
+
+    // Re-reads a window before the last sync, so a row committed late is still seen
+    private static final long SYNC_OVERLAP_MILLIS = 30_000;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedEntries;
+    private final double falsePositiveRate;
+    private final long tokenLifetimeMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder clear = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder revoked = new LongAdder();
+
+    private volatile Denylist denylist;
+    private volatile Instant syncedThrough = Instant.EPOCH;
+
+    public TokenRevocationService(
+            RevokedTokenRepository revokedTokenRepository,
+            @Value("${jwt.revocation.expected-entries:100000}") long expectedEntries,
+            @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${jwt.expiration}") long tokenLifetimeMillis
+    ) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.denylist = Denylist.empty(expectedEntries, falsePositiveRate);
+
+        FunctionCounter.builder("auth.revocation.checks", clear, LongAdder::sum)
+                .description("Revocation checks answered by the Bloom filter alone")
+                .tag("result", "clear")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder("auth.revocation.checks", falsePositives, LongAdder::sum)
+                .description("Revocation checks the filter passed on to the exact set, which cleared them")
+                .tag("result", "false_positive")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder("auth.revocation.checks", revoked, LongAdder::sum)
+                .description("Revocation checks that found the token revoked")
+                .tag("result", "revoked")
+                .register(Metrics.globalRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        rebuild();
+        // Registered here rather than in the constructor so the gauge never sees a half-built service
+        Gauge.builder("auth.revocation.entries", this, TokenRevocationService::size)
+                .description("Denylist entries held in memory")
+                .register(Metrics.globalRegistry);
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        Denylist list = denylist;
+        boolean possible = false;
+        String jti = token.id();
+        if (jti != null && list.filter().mightContain(BloomFilter.hash(jti))) {
+            possible = true;
+            if (list.tokens().containsKey(jti)) {
+                revoked.increment();
+                return true;
+            }
+        }
+        String userId = token.userId();
+        if (userId != null && list.filter().mightContain(BloomFilter.hash(userId) ^ USER_KEY_SALT)) {
+            possible = true;
+            Long epoch = list.users().get(userId);
+            // iat has whole-second precision, so a token from the revocation's own second counts as revoked
+            if (epoch != null && (token.issuedAt() == null || token.issuedAt().getTime() <= epoch)) {
+                revoked.increment();
+                return true;
+            }
+        }
+        (possible ? falsePositives : clear).increment();
+        return false;
+    }
+
+    // Revokes one token until it would have expired anyway
+    public void revoke(VerifiedToken token) {
+        if (token.id() == null) {
+            throw new IllegalArgumentException("Token has no jti; revoke its user instead");
+        }
+        Instant expiresAt = token.expiration() != null
+                ? token.expiration().toInstant()
+                : Instant.now().plusMillis(tokenLifetimeMillis);
+        save(RevokedToken.builder()
+                .id(RevokedToken.JTI_PREFIX + token.id())
+                .revokedAt(Instant.now())
+                .expiresAt(expiresAt)
+                .build());
+    }
+
+    // Revokes every token the user holds now; tokens issued afterwards are unaffected
+    public void revokeUser(UUID userId) {
+        Instant now = Instant.now();
+        save(RevokedToken.builder()
+                .id(RevokedToken.USER_PREFIX + userId)
+                .revokedAt(now)
+                .expiresAt(now.plusMillis(tokenLifetimeMillis))
+                .build());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:5000}")
+    public void sync() {
+        Instant pollStart = Instant.now();
+        List<RevokedToken> recent = revokedTokenRepository.findByRevokedAtGreaterThanEqual(
+                syncedThrough.minusMillis(SYNC_OVERLAP_MILLIS));
+        lock.lock();
+        try {
+            recent.forEach(denylist::add);
+            syncedThrough = pollStart;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.prune-interval-ms:600000}")
+    public void prune() {
+        revokedTokenRepository.deleteExpired(Instant.now());
+        rebuild();
+    }
+
+    public int size() {
+        Denylist list = denylist;
+        return list.tokens().size() + list.users().size();
+    }
+
+    private void save(RevokedToken entry) {
+        lock.lock();
+        try {
+            revokedTokenRepository.save(entry);
+            denylist.add(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sized for at least twice the live entries, so the false-positive rate holds as revocations grow
+    private void rebuild() {
+        Instant start = Instant.now();
+        lock.lock();
+        try {
+            List<RevokedToken> live = revokedTokenRepository.findByExpiresAtAfter(start);
+            Denylist next = Denylist.empty(Math.max(expectedEntries, 2L * live.size()), falsePositiveRate);
+            live.forEach(next::add);
+            denylist = next;
+            syncedThrough = start;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // tokens: jti -> expiry; users: user id -> epoch, both in epoch millis
+    private record Denylist(BloomFilter filter, ConcurrentHashMap<String, Long> tokens,
+                            ConcurrentHashMap<String, Long> users) {
+
+        static Denylist empty(long expectedEntries, double falsePositiveRate) {
+            return new Denylist(BloomFilter.create(expectedEntries, falsePositiveRate),
+                    new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+
+        // Map before filter: a reader that sees the filter bit also sees the entry
+        void add(RevokedToken entry) {
+            String id = entry.getId();
+            if (id.startsWith(RevokedToken.JTI_PREFIX)) {
+                String jti = id.substring(RevokedToken.JTI_PREFIX.length());
+                tokens.put(jti, entry.getExpiresAt().toEpochMilli());
+                filter.put(BloomFilter.hash(jti));
+            } else if (id.startsWith(RevokedToken.USER_PREFIX)) {
+                String userId = id.substring(RevokedToken.USER_PREFIX.length());
+                users.merge(userId, entry.getRevokedAt().toEpochMilli(), Math::max);
+                filter.put(BloomFilter.hash(userId) ^ USER_KEY_SALT);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import id.ac.ui.cs.advprog.eventsphereauth.cache.BoundedTtlCache;
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Function;
+
+@Component
+public class UserDetailsCache {
+
+    private final BoundedTtlCache<String, User> cache;
+
+    public UserDetailsCache(
+            @Value("${app.user-cache.max-size:10000}") int maxSize,
+            @Value("${app.user-cache.ttl-ms:300000}") long ttlMillis
+    ) {
+        this.cache = new BoundedTtlCache<>(maxSize, ttlMillis);
+
+        // Read from the cache's own counters at scrape time, so lookups pay nothing extra
+        FunctionCounter.builder("auth.user_cache.requests", cache, BoundedTtlCache::hitCount)
+                .description("Principal lookups answered from the user cache")
+                .tag("result", "hit")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder("auth.user_cache.requests", cache, BoundedTtlCache::missCount)
+                .description("Principal lookups that went to the database")
+                .tag("result", "miss")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder("auth.user_cache.expirations", cache, BoundedTtlCache::expirationCount)
+                .description("Principals dropped from the user cache because their TTL ran out")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder("auth.user_cache.evictions", cache, BoundedTtlCache::evictionCount)
+                .description("Principals dropped from the user cache to stay within its size bound")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("auth.user_cache.size", cache, BoundedTtlCache::size)
+                .description("Principals currently cached")
+                .register(Metrics.globalRegistry);
+    }
+
+    public User get(String email, Function<String, User> loader) {
+        return cache.get(email, loader);
+    }
+
+    /**
+     * Evicts the user now and, inside a transaction, again after it completes so a
+     * concurrent request cannot re-cache the pre-commit row.
+     */
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        cache.invalidate(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(email);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long hitCount() {
+        return cache.hitCount();
+    }
+
+    public long missCount() {
+        return cache.missCount();
+    }
+
+    public long expirationCount() {
+        return cache.expirationCount();
+    }
+
+    public long evictionCount() {
+        return cache.evictionCount();
+    }
+}
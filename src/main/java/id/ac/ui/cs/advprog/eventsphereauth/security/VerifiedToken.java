@@ -0,0 +1,23 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+public record VerifiedToken(String subject, Date issuedAt, Date expiration, String role, String userId, String id) {
+
+    static VerifiedToken from(Claims claims) {
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                claims.get("role", String.class),
+                claims.get("userId", String.class),
+                claims.getId()
+        );
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+}
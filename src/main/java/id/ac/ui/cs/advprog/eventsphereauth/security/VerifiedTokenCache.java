@@ -0,0 +1,172 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent cache from a SHA-256 digest of a raw token to its verified claims.
+ * Entries never outlive the token's own expiry and the total estimated heap
+ * footprint is kept under {@code maxBytes}. Going over the budget evicts down to
+ * a low-water mark, so the full scan that costs runs once per quarter of the
+ * budget inserted rather than on every put at capacity.
+ */
+public class VerifiedTokenCache {
+
+    // Digest key, map node, entry holder and the VerifiedToken with its two dates
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private static final double LOW_WATER_FRACTION = 0.75;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final long maxBytes;
+    private final long lowWaterBytes;
+    private final long maxTtlMillis;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<TokenDigest, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong weightBytes = new AtomicLong();
+    // One evicting thread is enough; the others carry on slightly over budget until it is done
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerifiedTokenCache(long maxBytes, long maxTtlMillis) {
+        this(maxBytes, maxTtlMillis, Clock.systemUTC());
+    }
+
+    public VerifiedTokenCache(long maxBytes, long maxTtlMillis, Clock clock) {
+        this.maxBytes = maxBytes;
+        this.lowWaterBytes = (long) (maxBytes * LOW_WATER_FRACTION);
+        this.maxTtlMillis = maxTtlMillis;
+        this.clock = clock;
+    }
+
+    public VerifiedToken get(String token) {
+        TokenDigest digest = TokenDigest.of(token);
+        Entry entry = entries.get(digest);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt() <= clock.millis()) {
+            remove(digest, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.token();
+    }
+
+    public void put(String token, VerifiedToken verified) {
+        long now = clock.millis();
+        long expiresAt = now + maxTtlMillis;
+        if (verified.expiration() != null) {
+            expiresAt = Math.min(expiresAt, verified.expiration().getTime());
+        }
+        if (expiresAt <= now) {
+            return;
+        }
+
+        Entry entry = new Entry(verified, expiresAt, weigh(verified));
+        if (entry.weight() > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(TokenDigest.of(token), entry);
+        weightBytes.addAndGet(entry.weight() - (previous == null ? 0 : previous.weight()));
+        if (weightBytes.get() > maxBytes && evicting.compareAndSet(false, true)) {
+            try {
+                evict(now);
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        weightBytes.set(0);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long weightBytes() {
+        return weightBytes.get();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private void evict(long now) {
+        for (Map.Entry<TokenDigest, Entry> e : entries.entrySet()) {
+            if (e.getValue().expiresAt() <= now) {
+                remove(e.getKey(), e.getValue());
+            }
+        }
+        // Hash order is effectively random, which makes this a random-eviction policy
+        Iterator<Map.Entry<TokenDigest, Entry>> it = entries.entrySet().iterator();
+        while (weightBytes.get() > lowWaterBytes && it.hasNext()) {
+            Map.Entry<TokenDigest, Entry> e = it.next();
+            remove(e.getKey(), e.getValue());
+        }
+    }
+
+    private void remove(TokenDigest digest, Entry entry) {
+        if (entries.remove(digest, entry)) {
+            weightBytes.addAndGet(-entry.weight());
+            evictions.increment();
+        }
+    }
+
+    private static int weigh(VerifiedToken token) {
+        return ENTRY_OVERHEAD_BYTES
+                + length(token.subject())
+                + length(token.role())
+                + length(token.userId())
+                + length(token.id());
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private record Entry(VerifiedToken token, long expiresAt, int weight) {
+    }
+
+    private record TokenDigest(long a, long b, long c, long d) {
+
+        static TokenDigest of(String token) {
+            MessageDigest sha = SHA_256.get();
+            ByteBuffer hash = ByteBuffer.wrap(sha.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenDigest(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+        }
+    }
+}
@@ -3,6 +3,9 @@ package id.ac.ui.cs.advprog.eventsphereauth.service;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.RegisterRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 
+import java.util.UUID;
+
 public interface AdminService {
     UserResponse createAdminOrOrganizer(RegisterRequest request) throws IllegalAccessException;
+    void revokeSessions(UUID userId);
 }
@@ -5,11 +5,18 @@ import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
 import id.ac.ui.cs.advprog.eventsphereauth.model.User;
 import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.security.TokenRevocationService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.UserDetailsCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -17,6 +24,9 @@ public class AdminServiceImpl implements AdminService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDetailsCache userDetailsCache;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
 
     public UserResponse createAdminOrOrganizer(RegisterRequest request) throws IllegalAccessException {
         User currentUser = getCurrentUser();
@@ -36,7 +46,8 @@ public class AdminServiceImpl implements AdminService {
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setRole(request.getRole());
 
-        User savedUser = userRepository.save(user);
+        User savedUser = EmailConflicts.translate(() -> userRepository.saveAndFlush(user));
+        userDetailsCache.invalidate(savedUser.getEmail());
 
         return UserResponse.builder()
                 .id(savedUser.getId())
@@ -48,6 +59,16 @@ public class AdminServiceImpl implements AdminService {
                 .build();
     }
 
+    // Signs the user out everywhere: no refresh, and every access token issued so far is refused
+    @Transactional
+    public void revokeSessions(UUID userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "USER_NOT_FOUND");
+        }
+        refreshTokenService.revokeAll(userId);
+        tokenRevocationService.revokeUser(userId);
+    }
+
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String currentUserEmail = authentication.getName();
@@ -2,9 +2,12 @@ package id.ac.ui.cs.advprog.eventsphereauth.service;
 
 import id.ac.ui.cs.advprog.eventsphereauth.dto.AuthResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.LoginRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.RefreshRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.RegisterRequest;
 
 public interface AuthService {
     AuthResponse register(RegisterRequest request);
     AuthResponse login(LoginRequest request);
+    AuthResponse refresh(RefreshRequest request);
+    void logout(RefreshRequest request, String accessToken);
 }
@@ -2,19 +2,29 @@ package id.ac.ui.cs.advprog.eventsphereauth.service;
 
 import id.ac.ui.cs.advprog.eventsphereauth.dto.AuthResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.LoginRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.RefreshRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.RegisterRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
 import id.ac.ui.cs.advprog.eventsphereauth.model.User;
 import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserWithBalance;
+import id.ac.ui.cs.advprog.eventsphereauth.security.AuthStages;
 import id.ac.ui.cs.advprog.eventsphereauth.security.JwtService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.TokenRevocationService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 @Service
 @RequiredArgsConstructor
@@ -25,51 +35,101 @@ public class AuthServiceImpl implements AuthService {
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final PlatformTransactionManager transactionManager;
 
-    @Transactional
+    // Not transactional: bcrypt runs first, so a request queued on the hashing pool holds no connection
     public AuthResponse register(RegisterRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalArgumentException("Email already exists");
-        }
-
         Role role = request.getRole() != null ? request.getRole() : Role.USER;
 
         var user = new User();
         user.setUsername(request.getUsername());
         user.setEmail(request.getEmail());
         user.setPhoneNumber(request.getPhoneNumber());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(AuthStages.REGISTRATION.time(AuthStages.HASH, () -> passwordEncoder.encode(request.getPassword())));
         user.setRole(role);
 
-        User savedUser = userRepository.save(user);
+        // A single INSERT; the unique email constraint decides concurrent sign-ups.
+        // The user and its first refresh token commit together or not at all.
+        Registered registered = new TransactionTemplate(transactionManager).execute(status -> {
+            User inserted = AuthStages.REGISTRATION.time(AuthStages.INSERT,
+                    () -> EmailConflicts.translate(() -> userRepository.saveAndFlush(user)));
+            return new Registered(inserted, refreshTokenService.issue(inserted.getId()));
+        });
+        User savedUser = registered.user();
+        String refreshToken = registered.refreshToken();
 
-        var jwtToken = jwtService.generateToken(savedUser);
-        UserResponse userResponse = userService.mapToUserResponse(savedUser);
+        var jwtToken = AuthStages.REGISTRATION.time(AuthStages.SIGN, () -> jwtService.generateToken(savedUser));
+        // A new user has an empty ledger, so the snapshot balance is already current
+        UserResponse userResponse = AuthStages.REGISTRATION.time(AuthStages.MAP, () -> userService.mapToUserResponse(savedUser));
 
         return AuthResponse.builder()
                 .token(jwtToken)
+                .refreshToken(refreshToken)
                 .user(userResponse)
                 .build();
     }
 
-    @Transactional(readOnly = true)
+    // Not transactional either: the lookup and the refresh-token insert each commit on their own,
+    // and bcrypt verification in between runs without a connection checked out
     public AuthResponse login(LoginRequest request) {
-        authenticationManager.authenticate(
+        // Lookup and verify are timed inside the authentication provider
+        Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         request.getEmail(),
                         request.getPassword()
                 )
         );
 
-        var user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + request.getEmail()));
+        User user = authentication.getPrincipal() instanceof User principal
+                ? principal
+                : userRepository.findByEmail(User.normalizeEmail(request.getEmail()))
+                        .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + request.getEmail()));
 
-        var jwtToken = jwtService.generateToken(user);
-        UserResponse userResponse = userService.mapToUserResponse(user);
+        var jwtToken = AuthStages.LOGIN.time(AuthStages.SIGN, () -> jwtService.generateToken(user));
+        String refreshToken = refreshTokenService.issue(user.getId());
+        UserResponse userResponse = AuthStages.LOGIN.time(AuthStages.MAP, () -> userService.mapToUserResponse(user));
 
         return AuthResponse.builder()
                 .token(jwtToken)
+                .refreshToken(refreshToken)
                 .user(userResponse)
                 .build();
     }
-}
\ No newline at end of file
+
+    // No password hashing here: one conditional UPDATE, one INSERT and a primary-key user lookup
+    // that also sums the unfolded ledger entries.
+    // Not transactional on purpose, so a detected reuse stays revoked when the request fails.
+    public AuthResponse refresh(RefreshRequest request) {
+        RefreshTokenService.Rotated rotated = refreshTokenService.rotate(request.getRefreshToken());
+        User user = userRepository.findWithBalanceById(rotated.userId())
+                .map(UserWithBalance::user)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "INVALID_REFRESH_TOKEN"));
+
+        return AuthResponse.builder()
+                .token(jwtService.generateToken(user))
+                .refreshToken(rotated.refreshToken())
+                .user(userService.mapToUserResponse(user))
+                .build();
+    }
+
+    private record Registered(User user, String refreshToken) {
+    }
+
+    // Ends the session on both sides: the refresh family and, if presented, the access token
+    public void logout(RefreshRequest request, String accessToken) {
+        refreshTokenService.revoke(request.getRefreshToken());
+        if (accessToken == null) {
+            return;
+        }
+        try {
+            VerifiedToken token = jwtService.verifyToken(accessToken);
+            if (token.id() != null) {
+                tokenRevocationService.revoke(token);
+            }
+        } catch (JwtException e) {
+            // Invalid or expired already, so there is nothing left to revoke
+        }
+    }
+}
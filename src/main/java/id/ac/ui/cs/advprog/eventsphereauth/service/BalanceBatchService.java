@@ -0,0 +1,10 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceBatchResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceOperation;
+
+import java.util.List;
+
+public interface BalanceBatchService {
+    BalanceBatchResponse applyBatch(List<BalanceOperation> operations);
+}
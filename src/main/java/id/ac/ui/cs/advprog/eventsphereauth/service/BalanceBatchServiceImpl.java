@@ -0,0 +1,145 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceBatchResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceOperation;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceOperationResult;
+import id.ac.ui.cs.advprog.eventsphereauth.model.MinorUnits;
+import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class BalanceBatchServiceImpl implements BalanceBatchService {
+
+    private static final String APPEND_ENTRY_SQL =
+            "insert into balance_ledger (user_id, delta, operation, created_at) values (?, ?, 'batch', ?)";
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxOperations;
+    private final int jdbcBatchSize;
+
+    public BalanceBatchServiceImpl(
+            UserRepository userRepository,
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.balance.batch.max-operations:10000}") int maxOperations,
+            @Value("${app.balance.batch.jdbc-batch-size:500}") int jdbcBatchSize
+    ) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxOperations = maxOperations;
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    @Transactional
+    public BalanceBatchResponse applyBatch(List<BalanceOperation> operations) {
+        return BalanceMetrics.time("batch", () -> apply(operations));
+    }
+
+    private BalanceBatchResponse apply(List<BalanceOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "EMPTY_BATCH");
+        }
+        if (operations.size() > maxOperations) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "BATCH_TOO_LARGE");
+        }
+
+        Set<UUID> ids = operations.stream()
+                .map(BalanceOperation::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<UUID, User> users = userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        // Only debited users can be overdrawn, so only they are locked; credits just append
+        Set<UUID> debited = operations.stream()
+                .filter(operation -> operation.getUserId() != null && operation.getDelta() != null
+                        && operation.getDelta() < 0)
+                .map(BalanceOperation::getUserId)
+                .collect(Collectors.toSet());
+
+        // Balances of the locked users, in minor units, as they will be after every operation accepted so far
+        Map<UUID, Long> projected = new HashMap<>();
+        userRepository.lockBalances(debited).forEach((id, balance) -> projected.put(id, MinorUnits.of(balance)));
+        BalanceOperationResult[] results = new BalanceOperationResult[operations.size()];
+        List<Integer> accepted = new ArrayList<>();
+
+        for (int i = 0; i < operations.size(); i++) {
+            BalanceOperation operation = operations.get(i);
+            String error = precheck(operation, users, projected);
+            if (error != null) {
+                results[i] = result(operation, false, error);
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        // The locks make the prechecks final, so every accepted operation is a plain insert
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(APPEND_ENTRY_SQL, accepted, jdbcBatchSize, (ps, index) -> {
+            BalanceOperation operation = operations.get(index);
+            ps.setObject(1, operation.getUserId());
+            ps.setBigDecimal(2, MinorUnits.toDecimal(operation.getDelta()));
+            ps.setTimestamp(3, now);
+        });
+        for (int index : accepted) {
+            results[index] = result(operations.get(index), true, null);
+        }
+
+        List<BalanceOperationResult> resultList = Arrays.asList(results);
+        int succeeded = (int) resultList.stream().filter(BalanceOperationResult::isSuccess).count();
+        return BalanceBatchResponse.builder()
+                .succeeded(succeeded)
+                .failed(resultList.size() - succeeded)
+                .results(resultList)
+                .build();
+    }
+
+    private String precheck(BalanceOperation operation, Map<UUID, User> users, Map<UUID, Long> projected) {
+        if (operation.getUserId() == null || operation.getDelta() == null || operation.getDelta() == 0) {
+            return "INVALID_OPERATION";
+        }
+        User user = users.get(operation.getUserId());
+        if (user == null) {
+            return "USER_NOT_FOUND";
+        }
+        if (user.getRole() != Role.USER) {
+            return "NOT_ATTENDEE";
+        }
+        Long current = projected.get(user.getId());
+        if (current == null) {
+            return null;
+        }
+        long next;
+        try {
+            next = Math.addExact(current, operation.getDelta());
+        } catch (ArithmeticException e) {
+            return "BALANCE_OVERFLOW";
+        }
+        if (next < 0) {
+            return "INSUFFICIENT_BALANCE";
+        }
+        projected.put(user.getId(), next);
+        return null;
+    }
+
+    private BalanceOperationResult result(BalanceOperation operation, boolean success, String error) {
+        return BalanceOperationResult.builder()
+                .userId(operation.getUserId())
+                .delta(operation.getDelta() == null ? null : MinorUnits.toDecimal(operation.getDelta()))
+                .success(success)
+                .error(error)
+                .build();
+    }
+}
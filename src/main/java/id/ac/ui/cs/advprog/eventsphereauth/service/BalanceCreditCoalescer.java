@@ -0,0 +1,136 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds concurrent credits to the same user into one ledger write. The first credit
+ * opens a batch for its user; credits arriving within the window, or until the batch
+ * holds {@code max-operations}, join it, and the whole batch is applied as a single
+ * credit of the sum. Hot accounts then cost one insert per batch rather than one
+ * per request. In single-writer mode the batch's write queues on the account's
+ * stripe in {@link BalanceMailboxes} like any other mutation.
+ * <p>
+ * Each caller's future completes with the balance just after its own credit within
+ * the batch, or empty when the write matched no attendee, exactly like
+ * {@link UserRepository#creditBalance(UUID, BigDecimal)}.
+ */
+@Component
+public class BalanceCreditCoalescer {
+
+    private static final DistributionSummary BATCH_SIZE = DistributionSummary.builder("balance.coalesce.batch.size")
+            .description("Credits applied per coalesced ledger write")
+            .register(Metrics.globalRegistry);
+
+    private final UserRepository userRepository;
+    private final BalanceMailboxes balanceMailboxes;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxOperations;
+    private final ScheduledExecutorService flusher;
+    private final ConcurrentHashMap<UUID, Batch> open = new ConcurrentHashMap<>();
+
+    public BalanceCreditCoalescer(
+            UserRepository userRepository,
+            BalanceMailboxes balanceMailboxes,
+            @Value("${app.balance.coalesce.enabled:false}") boolean enabled,
+            @Value("${app.balance.coalesce.window-ms:5}") long windowMillis,
+            @Value("${app.balance.coalesce.max-operations:64}") int maxOperations,
+            @Value("${app.balance.coalesce.flush-threads:4}") int flushThreads
+    ) {
+        if (maxOperations < 1) {
+            throw new IllegalArgumentException("app.balance.coalesce.max-operations must be positive");
+        }
+        this.userRepository = userRepository;
+        this.balanceMailboxes = balanceMailboxes;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxOperations = maxOperations;
+        this.flusher = Executors.newScheduledThreadPool(flushThreads,
+                Thread.ofPlatform().name("balance-coalesce-", 0).daemon().factory());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Optional<BigDecimal>> credit(UUID userId, BigDecimal amount) {
+        CompletableFuture<Optional<BigDecimal>> result = new CompletableFuture<>();
+        Batch[] full = new Batch[1];
+        // compute() runs under the key's bin lock, so a batch is never joined after it has been taken
+        open.compute(userId, (id, batch) -> {
+            if (batch == null) {
+                batch = new Batch();
+                Batch scheduled = batch;
+                flusher.schedule(() -> flushIfOpen(id, scheduled), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.amounts.add(amount);
+            batch.results.add(result);
+            if (batch.amounts.size() >= maxOperations) {
+                full[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+        if (full[0] != null) {
+            flusher.execute(() -> apply(userId, full[0]));
+        }
+        return result;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // Delayed flushes still run after shutdown(), so no caller is left waiting
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // A batch that filled up has already been taken off the map and flushed
+    private void flushIfOpen(UUID userId, Batch batch) {
+        if (open.remove(userId, batch)) {
+            apply(userId, batch);
+        }
+    }
+
+    private void apply(UUID userId, Batch batch) {
+        BATCH_SIZE.record(batch.amounts.size());
+        BigDecimal total = batch.amounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        Optional<BigDecimal> balance;
+        try {
+            balance = balanceMailboxes.submit(userId, () -> userRepository.creditBalance(userId, total));
+        } catch (RuntimeException e) {
+            batch.results.forEach(result -> result.completeExceptionally(e));
+            return;
+        }
+        if (balance.isEmpty()) {
+            batch.results.forEach(result -> result.complete(Optional.empty()));
+            return;
+        }
+        // Walk back from the final balance, so each caller sees the balance right after its own credit
+        BigDecimal after = balance.get();
+        for (int i = batch.amounts.size() - 1; i >= 0; i--) {
+            batch.results.get(i).complete(Optional.of(after));
+            after = after.subtract(batch.amounts.get(i));
+        }
+    }
+
+    private static final class Batch {
+        final List<BigDecimal> amounts = new ArrayList<>();
+        final List<CompletableFuture<Optional<BigDecimal>>> results = new ArrayList<>();
+    }
+}
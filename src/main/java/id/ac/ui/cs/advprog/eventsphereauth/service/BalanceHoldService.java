@@ -0,0 +1,12 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.dto.HoldResponse;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface BalanceHoldService {
+    HoldResponse reserve(UUID userId, BigDecimal amount, Long ttlSeconds);
+    HoldResponse capture(UUID holdId);
+    HoldResponse release(UUID holdId);
+}
@@ -0,0 +1,290 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.dto.HoldResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.model.BalanceHold;
+import id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus;
+import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.BalanceHoldRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.timer.HierarchicalTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Two-phase balance holds for checkout: reserve, then capture or release. The
+ * reserve is a guarded ledger debit, so the available balance is simply the balance
+ * and the debit path cannot spend held funds. Capture is a single status update
+ * with no balance write; release and expiry append the matching credit.
+ * <p>
+ * Open holds expire through a {@link HierarchicalTimingWheel} rather than a table
+ * scan. Every instance loads open holds at startup and picks up other instances'
+ * holds through {@link #sync}; the conditional status update makes sure only one
+ * of them actually expires a hold. The tick only advances the wheel: each expiry's
+ * transaction runs on a dedicated pool, so a burst of expiring holds never stalls
+ * the other {@code @Scheduled} jobs sharing Spring's scheduler thread.
+ */
+@Service
+public class BalanceHoldServiceImpl implements BalanceHoldService {
+
+    private static final int WHEEL_SIZE = 64;
+
+    // Re-reads a window before the last sync, so a hold committed late is still seen
+    private static final long SYNC_OVERLAP_MILLIS = 30_000;
+
+    // A failed expiry is retried after this long instead of leaving the funds held
+    private static final long EXPIRY_RETRY_MILLIS = 5_000;
+
+    private static final Counter EXPIRED_COUNTER = Counter.builder("balance.holds.expired")
+            .description("Holds released because they were neither captured nor released in time")
+            .register(Metrics.globalRegistry);
+
+    private final BalanceHoldRepository holdRepository;
+    private final UserRepository userRepository;
+    private final BalanceMailboxes balanceMailboxes;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long defaultTtlMillis;
+    private final long maxTtlMillis;
+    private final HierarchicalTimingWheel<UUID> wheel;
+    private final ExecutorService expirer;
+    // Open holds this instance will expire, so capture and release can cancel their timers
+    private final Map<UUID, HierarchicalTimingWheel.Timeout<UUID>> timeouts = new ConcurrentHashMap<>();
+
+    private volatile Instant syncedThrough = Instant.EPOCH;
+
+    public BalanceHoldServiceImpl(
+            BalanceHoldRepository holdRepository,
+            UserRepository userRepository,
+            BalanceMailboxes balanceMailboxes,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.balance.hold.default-ttl-ms:300000}") long defaultTtlMillis,
+            @Value("${app.balance.hold.max-ttl-ms:900000}") long maxTtlMillis,
+            @Value("${app.balance.hold.tick-ms:100}") long tickMillis,
+            @Value("${app.balance.hold.expiry-threads:2}") int expiryThreads
+    ) {
+        this.holdRepository = holdRepository;
+        this.userRepository = userRepository;
+        this.balanceMailboxes = balanceMailboxes;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.defaultTtlMillis = defaultTtlMillis;
+        this.maxTtlMillis = maxTtlMillis;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, WHEEL_SIZE, System.currentTimeMillis());
+        this.expirer = Executors.newFixedThreadPool(expiryThreads,
+                Thread.ofPlatform().name("balance-hold-expiry-", 0).daemon().factory());
+    }
+
+    @PostConstruct
+    void init() {
+        Instant start = Instant.now();
+        holdRepository.findByStatus(HoldStatus.HELD).forEach(this::track);
+        syncedThrough = start;
+        // On the context's own registry, so a second context in the same JVM reports its own holds
+        Gauge.builder("balance.holds.pending", this, BalanceHoldServiceImpl::pending)
+                .description("Open holds waiting on the expiry timer")
+                .register(meterRegistry);
+    }
+
+    public HoldResponse reserve(UUID userId, BigDecimal amount, Long ttlSeconds) {
+        return BalanceMetrics.time("reserve", () -> {
+            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+                throw new IllegalArgumentException("Amount must be positive");
+            }
+            long ttlMillis = ttlSeconds == null ? defaultTtlMillis : TimeUnit.SECONDS.toMillis(ttlSeconds);
+            if (ttlMillis <= 0 || ttlMillis > maxTtlMillis) {
+                throw new IllegalArgumentException(
+                        "Hold TTL must be between 1 and " + TimeUnit.MILLISECONDS.toSeconds(maxTtlMillis) + " seconds");
+            }
+
+            Instant now = Instant.now();
+            BalanceHold hold = BalanceHold.builder()
+                    .id(UUID.randomUUID())
+                    .userId(userId)
+                    .amount(amount)
+                    .status(HoldStatus.HELD)
+                    .createdAt(now)
+                    .expiresAt(now.plusMillis(ttlMillis))
+                    .build();
+            // A reserve is a debit, so it queues behind the account's other debits in single-writer mode
+            BigDecimal balance = balanceMailboxes.submit(userId, () -> transactionTemplate.execute(status -> {
+                BigDecimal available = userRepository.debitBalance(userId, amount, "hold", hold.getId())
+                        .orElseThrow(() -> reserveRejected(userId));
+                holdRepository.save(hold);
+                return available;
+            }));
+            track(hold);
+            return response(hold, balance);
+        });
+    }
+
+    public HoldResponse capture(UUID holdId) {
+        return BalanceMetrics.time("capture", () -> {
+            HoldResponse captured = transactionTemplate.execute(status -> {
+                if (holdRepository.capture(holdId, Instant.now()) == 0) {
+                    return null;
+                }
+                BalanceHold hold = holdRepository.findById(holdId).orElseThrow();
+                return response(hold, userRepository.currentBalance(hold.getUserId()).orElse(null));
+            });
+            if (captured != null) {
+                untrack(holdId);
+                return captured;
+            }
+
+            BalanceHold hold = find(holdId);
+            if (hold.getStatus() == HoldStatus.CAPTURED) {
+                return response(hold, userRepository.currentBalance(hold.getUserId()).orElse(null));
+            }
+            if (hold.getStatus() == HoldStatus.RELEASED) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "HOLD_RELEASED");
+            }
+            // Still HELD here means past its deadline, with the timer about to fire
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "HOLD_EXPIRED");
+        });
+    }
+
+    public HoldResponse release(UUID holdId) {
+        return BalanceMetrics.time("release", () -> {
+            HoldResponse released = onHoldAccount(holdId, () -> transactionTemplate.execute(status -> {
+                if (holdRepository.release(holdId, Instant.now()) == 0) {
+                    return null;
+                }
+                BalanceHold hold = holdRepository.findById(holdId).orElseThrow();
+                return response(hold, userRepository
+                        .creditBalance(hold.getUserId(), hold.getAmount(), "release", holdId).orElse(null));
+            }));
+            if (released != null) {
+                untrack(holdId);
+                return released;
+            }
+
+            BalanceHold hold = find(holdId);
+            if (hold.getStatus() == HoldStatus.CAPTURED) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "HOLD_CAPTURED");
+            }
+            // Released or expired already: the funds are back, so a retried release just reports that
+            return response(hold, userRepository.currentBalance(hold.getUserId()).orElse(null));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.balance.hold.tick-ms:100}")
+    public void tick() {
+        wheel.advance(System.currentTimeMillis(), holdId -> {
+            timeouts.remove(holdId);
+            try {
+                expirer.execute(() -> expire(holdId));
+            } catch (RejectedExecutionException e) {
+                // Shutting down: another instance, or this one after restart, expires it
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.balance.hold.sync-interval-ms:5000}")
+    public void sync() {
+        Instant pollStart = Instant.now();
+        holdRepository.findByStatusAndCreatedAtGreaterThanEqual(
+                HoldStatus.HELD, syncedThrough.minusMillis(SYNC_OVERLAP_MILLIS)).forEach(this::track);
+        syncedThrough = pollStart;
+    }
+
+    public int pending() {
+        return timeouts.size();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        expirer.shutdown();
+        expirer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void expire(UUID holdId) {
+        try {
+            Boolean expired = onHoldAccount(holdId, () -> transactionTemplate.execute(status -> {
+                if (holdRepository.expire(holdId, Instant.now()) == 0) {
+                    return false;
+                }
+                BalanceHold hold = holdRepository.findById(holdId).orElseThrow();
+                userRepository.creditBalance(hold.getUserId(), hold.getAmount(), "expire", holdId);
+                return true;
+            }));
+            if (Boolean.TRUE.equals(expired)) {
+                EXPIRED_COUNTER.increment();
+            }
+        } catch (RuntimeException e) {
+            timeouts.computeIfAbsent(holdId,
+                    id -> wheel.schedule(id, System.currentTimeMillis() + EXPIRY_RETRY_MILLIS));
+        }
+    }
+
+    // Release and expiry credit the hold's account, so in single-writer mode they queue on its stripe too
+    private <T> T onHoldAccount(UUID holdId, Supplier<T> mutation) {
+        if (!balanceMailboxes.isEnabled()) {
+            return mutation.get();
+        }
+        // Not Optional.map: the mutation may return null, which must not run it a second time
+        Optional<BalanceHold> hold = holdRepository.findById(holdId);
+        return hold.isPresent() ? balanceMailboxes.submit(hold.get().getUserId(), mutation) : mutation.get();
+    }
+
+    private void track(BalanceHold hold) {
+        timeouts.computeIfAbsent(hold.getId(), id -> wheel.schedule(id, hold.getExpiresAt().toEpochMilli()));
+    }
+
+    private void untrack(UUID holdId) {
+        HierarchicalTimingWheel.Timeout<UUID> timeout = timeouts.remove(holdId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private BalanceHold find(UUID holdId) {
+        return holdRepository.findById(holdId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "HOLD_NOT_FOUND"));
+    }
+
+    // Same outcomes as a refused deduct: unknown user, not an attendee, or not enough available
+    private RuntimeException reserveRejected(UUID userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
+        if (user.getRole() != Role.USER) {
+            return new IllegalStateException("Only ATTENDEE can perform balance operations");
+        }
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "INSUFFICIENT_BALANCE");
+    }
+
+    private static HoldResponse response(BalanceHold hold, BigDecimal balance) {
+        return HoldResponse.builder()
+                .id(hold.getId())
+                .userId(hold.getUserId())
+                .amount(hold.getAmount())
+                .status(hold.getStatus())
+                .expiresAt(hold.getExpiresAt())
+                .balance(balance)
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer mode for balance mutations. Every account maps to one of a fixed
+ * set of stripes, each a single thread draining its own mailbox, so two mutations
+ * of the same account in this instance never run at the same time. The row lock a
+ * debit takes is then never contended from inside the instance: the check and the
+ * append run back to back instead of queueing on the database.
+ * <p>
+ * Operations run inline when the mode is off, when the caller already has a
+ * transaction (the mutation must commit with it), and when the caller is itself a
+ * stripe thread. A stripe whose mailbox is full rejects new work with a 503 rather
+ * than letting callers pile up behind it.
+ * <p>
+ * Mailboxes only order work inside one instance, so debits keep their row lock for
+ * other instances. Batch operations keep locking every debited row in one
+ * transaction too: a batch spans accounts on different stripes and must apply
+ * atomically, so it cannot queue on any single one.
+ */
+@Component
+public class BalanceMailboxes {
+
+    private static final ThreadLocal<Boolean> ON_STRIPE = new ThreadLocal<>();
+
+    private static final Timer WAIT = Timer.builder("balance.mailbox.wait")
+            .description("Time a balance mutation spent queued behind others for the same stripe")
+            .publishPercentileHistogram()
+            .register(Metrics.globalRegistry);
+
+    private static final Counter REJECTED = Counter.builder("balance.mailbox.rejected")
+            .description("Balance mutations turned away because their stripe's mailbox was full")
+            .register(Metrics.globalRegistry);
+
+    private final boolean enabled;
+    private final ThreadPoolExecutor[] stripes;
+
+    public BalanceMailboxes(
+            @Value("${app.balance.single-writer.enabled:false}") boolean enabled,
+            @Value("${app.balance.single-writer.stripes:16}") int stripeCount,
+            @Value("${app.balance.single-writer.queue-capacity:1024}") int queueCapacity
+    ) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("app.balance.single-writer.stripes must be positive");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("app.balance.single-writer.queue-capacity must be positive");
+        }
+        this.enabled = enabled;
+        this.stripes = new ThreadPoolExecutor[enabled ? stripeCount : 0];
+        for (int i = 0; i < stripes.length; i++) {
+            String name = "balance-writer-" + i;
+            ThreadPoolExecutor stripe = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity), task -> Thread.ofPlatform().name(name).daemon().unstarted(() -> {
+                        ON_STRIPE.set(Boolean.TRUE);
+                        task.run();
+                    }));
+            stripes[i] = stripe;
+            Gauge.builder("balance.mailbox.depth", stripe, s -> s.getQueue().size())
+                    .description("Balance mutations waiting in a stripe's mailbox")
+                    .tag("stripe", Integer.toString(i))
+                    .register(Metrics.globalRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public <T> T submit(UUID userId, Supplier<T> operation) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive() || ON_STRIPE.get() != null) {
+            return operation.get();
+        }
+        long queuedAt = System.nanoTime();
+        CompletableFuture<T> result;
+        try {
+            result = CompletableFuture.supplyAsync(() -> {
+                WAIT.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return operation.get();
+            }, stripeFor(userId));
+        } catch (RejectedExecutionException e) {
+            REJECTED.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "BALANCE_BUSY", e);
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    // Random UUIDs already spread evenly, so the low bits of the hash pick the stripe
+    private ThreadPoolExecutor stripeFor(UUID userId) {
+        return stripes[Math.floorMod(userId.hashCode(), stripes.length)];
+    }
+}
@@ -0,0 +1,56 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@code balance.mutation} timer, tagged by operation and outcome. It wraps the
+ * whole mutation, including any wait for a mailbox stripe and the repository
+ * transaction's commit.
+ */
+final class BalanceMetrics {
+
+    private static final Meter.MeterProvider<Timer> TIMER = Timer.builder("balance.mutation")
+            .description("Time spent applying a balance mutation")
+            .publishPercentileHistogram()
+            .withRegistry(Metrics.globalRegistry);
+
+    private BalanceMetrics() {
+    }
+
+    static <T> T time(String operation, Supplier<T> mutation) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = mutation.get();
+            outcome = "success";
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            TIMER.withTags("operation", operation, "outcome", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Reasons are the fixed codes this package raises, e.g. INSUFFICIENT_BALANCE
+    private static String outcomeOf(RuntimeException e) {
+        if (e instanceof ResponseStatusException status && status.getReason() != null) {
+            return status.getReason().toLowerCase(Locale.ROOT);
+        }
+        if (e instanceof IllegalArgumentException) {
+            return "invalid";
+        }
+        if (e instanceof IllegalStateException) {
+            return "not_attendee";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,5 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+public interface BalanceSnapshotService {
+    int snapshot();
+}
@@ -0,0 +1,45 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Maps a unique-constraint violation on insert to the "Email already exists"
+ * error. The email column is the only unique column a caller supplies, so any
+ * other integrity failure is rethrown untouched.
+ */
+final class EmailConflicts {
+
+    // SQL standard unique_violation, reported by both PostgreSQL and H2
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private EmailConflicts() {
+    }
+
+    static <T> T translate(Supplier<T> insert) {
+        try {
+            return insert.get();
+        } catch (DataIntegrityViolationException e) {
+            if (isUniqueViolation(e)) {
+                throw new IllegalArgumentException("Email already exists", e);
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isUniqueViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE) {
+                return true;
+            }
+            if (cause instanceof SQLException sql && UNIQUE_VIOLATION.equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,8 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+    BigDecimal execute(String idempotencyKey, String operation, String userId, BigDecimal amount, Supplier<BigDecimal> action);
+}
@@ -0,0 +1,137 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.cache.BoundedTtlCache;
+import id.ac.ui.cs.advprog.eventsphereauth.model.IdempotencyRecord;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BoundedTtlCache<String, StoredResult> completed;
+    private final ConcurrentHashMap<String, Boolean> inFlight = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final boolean persistent;
+
+    public IdempotencyServiceImpl(
+            IdempotencyRecordRepository recordRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.idempotency.max-entries:100000}") int maxEntries,
+            @Value("${app.idempotency.ttl-ms:86400000}") long ttlMillis,
+            @Value("${app.idempotency.persistent:false}") boolean persistent
+    ) {
+        this.recordRepository = recordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.completed = new BoundedTtlCache<>(maxEntries, ttlMillis);
+        this.ttlMillis = ttlMillis;
+        this.persistent = persistent;
+    }
+
+    public BigDecimal execute(String idempotencyKey, String operation, String userId, BigDecimal amount, Supplier<BigDecimal> action) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "INVALID_IDEMPOTENCY_KEY");
+        }
+        String storeKey = operation + ":" + userId + ":" + idempotencyKey;
+
+        StoredResult stored = lookup(storeKey);
+        if (stored != null) {
+            return replay(stored, amount);
+        }
+
+        if (inFlight.putIfAbsent(storeKey, Boolean.TRUE) != null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "IDEMPOTENCY_KEY_IN_USE");
+        }
+        try {
+            // The request holding the key before us may have finished in between
+            stored = completed.get(storeKey);
+            if (stored != null) {
+                return replay(stored, amount);
+            }
+            StoredResult result = persistent
+                    ? executeAndPersist(storeKey, operation, userId, amount, action)
+                    : new StoredResult(amount, action.get());
+            completed.put(storeKey, result);
+            return replay(result, amount);
+        } finally {
+            inFlight.remove(storeKey);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        if (persistent) {
+            recordRepository.deleteExpired(Instant.now());
+        }
+    }
+
+    private StoredResult lookup(String storeKey) {
+        StoredResult cached = completed.get(storeKey);
+        if (cached != null || !persistent) {
+            return cached;
+        }
+        StoredResult persisted = findPersisted(storeKey);
+        if (persisted != null) {
+            completed.put(storeKey, persisted);
+        }
+        return persisted;
+    }
+
+    private StoredResult findPersisted(String storeKey) {
+        return recordRepository.findById(storeKey)
+                .filter(record -> record.getExpiresAt().isAfter(Instant.now()))
+                .map(record -> new StoredResult(record.getAmount(), record.getResultBalance()))
+                .orElse(null);
+    }
+
+    // The mutation and its key commit together, so a duplicate on another instance rolls back
+    private StoredResult executeAndPersist(String storeKey, String operation, String userId, BigDecimal amount,
+                                           Supplier<BigDecimal> action) {
+        try {
+            return transactionTemplate.execute(status -> {
+                BigDecimal balance = action.get();
+                recordRepository.saveAndFlush(IdempotencyRecord.builder()
+                        .id(storeKey)
+                        .operation(operation)
+                        .userId(UUID.fromString(userId))
+                        .amount(amount)
+                        .resultBalance(balance)
+                        .expiresAt(Instant.now().plusMillis(ttlMillis))
+                        .build());
+                return new StoredResult(amount, balance);
+            });
+        } catch (DataIntegrityViolationException e) {
+            StoredResult winner = findPersisted(storeKey);
+            if (winner == null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "IDEMPOTENCY_KEY_IN_USE");
+            }
+            return winner;
+        }
+    }
+
+    private BigDecimal replay(StoredResult stored, BigDecimal amount) {
+        if (stored.amount().compareTo(amount) != 0) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "IDEMPOTENCY_KEY_REUSED");
+        }
+        return stored.balance();
+    }
+
+    private record StoredResult(BigDecimal amount, BigDecimal balance) {
+    }
+}
@@ -0,0 +1,13 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import java.util.UUID;
+
+public interface RefreshTokenService {
+    String issue(UUID userId);
+    Rotated rotate(String refreshToken);
+    void revoke(String refreshToken);
+    void revokeAll(UUID userId);
+
+    record Rotated(UUID userId, String refreshToken) {
+    }
+}
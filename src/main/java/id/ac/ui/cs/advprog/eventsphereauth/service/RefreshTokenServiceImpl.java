@@ -0,0 +1,115 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.RefreshToken;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque refresh tokens: 256 random bits handed to the client, only their SHA-256
+ * kept here. The tokens carry full entropy, so a fast hash is as safe as a slow one
+ * and renewal costs one primary-key UPDATE and one INSERT.
+ * <p>
+ * Each refresh retires the presented token and issues the next one in its family.
+ * Presenting a retired token again means it was copied, so the whole family is
+ * revoked and both the thief and the victim have to log in again.
+ */
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static final Counter REUSE_COUNTER = Counter.builder("auth.refresh.reused")
+            .description("Refresh tokens presented again after rotation; each one revokes its family")
+            .register(Metrics.globalRegistry);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom random = new SecureRandom();
+    private final long ttlMillis;
+
+    public RefreshTokenServiceImpl(
+            RefreshTokenRepository refreshTokenRepository,
+            @Value("${jwt.refresh.expiration-ms:2592000000}") long ttlMillis
+    ) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.ttlMillis = ttlMillis;
+    }
+
+    @Transactional
+    public String issue(UUID userId) {
+        return issue(userId, UUID.randomUUID(), Instant.now());
+    }
+
+    // The reuse check must commit its revocation even though the caller gets an error
+    @Transactional(noRollbackFor = ResponseStatusException.class)
+    public Rotated rotate(String refreshToken) {
+        String tokenHash = hash(refreshToken);
+        Instant now = Instant.now();
+        if (refreshTokenRepository.markRotated(tokenHash, now) == 1) {
+            RefreshToken current = refreshTokenRepository.findById(tokenHash).orElseThrow();
+            return new Rotated(current.getUserId(), issue(current.getUserId(), current.getFamilyId(), now));
+        }
+        RefreshToken known = refreshTokenRepository.findById(tokenHash).orElse(null);
+        if (known != null && known.getRotatedAt() != null) {
+            REUSE_COUNTER.increment();
+            refreshTokenRepository.deleteFamily(known.getFamilyId());
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "REFRESH_TOKEN_REUSED");
+        }
+        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "INVALID_REFRESH_TOKEN");
+    }
+
+    @Transactional
+    public void revoke(String refreshToken) {
+        refreshTokenRepository.findById(hash(refreshToken))
+                .ifPresent(token -> refreshTokenRepository.deleteFamily(token.getFamilyId()));
+    }
+
+    @Transactional
+    public void revokeAll(UUID userId) {
+        refreshTokenRepository.deleteByUser(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        refreshTokenRepository.deleteExpired(Instant.now());
+    }
+
+    private String issue(UUID userId, UUID familyId, Instant now) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(token))
+                .familyId(familyId)
+                .userId(userId)
+                .expiresAt(now.plusMillis(ttlMillis))
+                .build());
+        return token;
+    }
+
+    static String hash(String token) {
+        if (token == null || token.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "INVALID_REFRESH_TOKEN");
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package id.ac.ui.cs.advprog.eventsphereauth.service;
 
+import id.ac.ui.cs.advprog.eventsphereauth.dto.UserPageResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserUpdateRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
@@ -15,16 +16,18 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public interface UserService {
-    List<UserResponse> getAllUsers();
+    UserPageResponse getUsers(UUID after, int limit);
+    void exportUsers(Consumer<UserResponse> sink);
     UserResponse getUserById(UUID id);
     UserResponse getAuthenticatedUserResponse();
     UserResponse updateUser(UUID id, UserUpdateRequest updateRequest) throws IllegalAccessException;
     void deleteUser(UUID id) throws IllegalAccessException;
     UserResponse mapToUserResponse(id.ac.ui.cs.advprog.eventsphereauth.model.User user);
-    void addBalance(String userId, BigDecimal amount);
-    void deductBalance(String userId, BigDecimal amount);
+    BigDecimal addBalance(String userId, BigDecimal amount);
+    BigDecimal deductBalance(String userId, BigDecimal amount);
     BigDecimal getBalance(String userId);
 }
\ No newline at end of file
@@ -1,47 +1,78 @@
 package id.ac.ui.cs.advprog.eventsphereauth.service;
 
+import id.ac.ui.cs.advprog.eventsphereauth.dto.UserPageResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserUpdateRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
 import id.ac.ui.cs.advprog.eventsphereauth.model.User;
 import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.security.TokenRevocationService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.UserDetailsCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException; // Consistent exception type
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // Recommended
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final BalanceCreditCoalescer balanceCreditCoalescer;
+    private final BalanceMailboxes balanceMailboxes;
+
+    @Transactional(readOnly = true)
+    public UserPageResponse getUsers(UUID after, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        // One extra row tells us whether there is a next page without a count query
+        Limit fetch = Limit.of(pageSize + 1);
+        List<UserResponse> users = after == null
+                ? userRepository.findResponsesOrderById(fetch)
+                : userRepository.findResponsesAfter(after, fetch);
+
+        boolean hasMore = users.size() > pageSize;
+        List<UserResponse> page = hasMore ? users.subList(0, pageSize) : users;
+        return UserPageResponse.builder()
+                .users(page)
+                .nextCursor(hasMore ? page.get(page.size() - 1).getId() : null)
+                .build();
+    }
 
-    public List<UserResponse> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(this::mapToUserResponse) // Using your existing mapper name
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public void exportUsers(Consumer<UserResponse> sink) {
+        try (Stream<UserResponse> users = userRepository.streamResponsesOrderById()) {
+            users.forEach(sink);
+        }
     }
 
     public UserResponse getUserById(UUID id) {
-        User user = userRepository.findById(id)
+        return userRepository.findResponseById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
-        return mapToUserResponse(user);
     }
-
-    @Transactional(readOnly = true)
     public UserResponse getAuthenticatedUserResponse() {
-        User currentUser = getCurrentUserEntity();
-        return mapToUserResponse(currentUser);
+        String currentUserEmail = currentUserEmail();
+        return userRepository.findResponseByEmail(currentUserEmail)
+                .orElseThrow(() -> new UsernameNotFoundException("Current user not found with email: " + currentUserEmail));
     }
 
     @Transactional
@@ -54,12 +85,15 @@ public class UserServiceImpl implements UserService {
             throw new IllegalAccessException("You are not authorized to update this user");
         }
 
+        userDetailsCache.invalidate(userToUpdate.getEmail());
+
         if (updateRequest.getUsername() != null) {
             userToUpdate.setUsername(updateRequest.getUsername());
         }
 
         if (updateRequest.getEmail() != null) {
-            if (!userToUpdate.getEmail().equals(updateRequest.getEmail()) && userRepository.existsByEmail(updateRequest.getEmail())) {
+            String newEmail = User.normalizeEmail(updateRequest.getEmail());
+            if (!userToUpdate.getEmail().equals(newEmail) && userRepository.existsByEmail(newEmail)) {
                 throw new IllegalArgumentException("New email is already in use by another account.");
             }
             userToUpdate.setEmail(updateRequest.getEmail());
@@ -70,7 +104,8 @@ public class UserServiceImpl implements UserService {
         }
 
         User updatedUser = userRepository.save(userToUpdate);
-        return mapToUserResponse(updatedUser);
+        // The entity only holds the balance snapshot; the projection adds the ledger entries since
+        return userRepository.findResponseById(id).orElseGet(() -> mapToUserResponse(updatedUser));
     }
 
     @Transactional
@@ -89,6 +124,10 @@ public class UserServiceImpl implements UserService {
         }
 
         userRepository.deleteById(id);
+        userDetailsCache.invalidate(userToDelete.getEmail());
+        // Stateless mode never reloads the user, so its live tokens have to be cut off explicitly
+        refreshTokenService.revokeAll(id);
+        tokenRevocationService.revokeUser(id);
     }
 
      public boolean isNotValidUUID(String input) {
@@ -100,52 +139,77 @@ public class UserServiceImpl implements UserService {
         }
     }
 
-    @Transactional
-    public void addBalance(String userId, BigDecimal amount) {
-        User user = validationBalance(userId, amount);
-        try {
-            BigDecimal newBalance = user.getBalance().add(amount);
-            user.setBalance(newBalance);
-            userRepository.save(user);
-        } catch (RestClientException e) {
-            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "CONNECTION_ERROR");
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "SYSTEM_ERROR");
-        }
+    // Not @Transactional: the ledger write runs in its own, and a queued or coalesced credit must not hold a connection while it waits
+    public BigDecimal addBalance(String userId, BigDecimal amount) {
+        return BalanceMetrics.time("credit", () -> {
+            UUID uuid = validationBalance(userId, amount);
+            Optional<BigDecimal> updated;
+            try {
+                updated = credit(uuid, amount);
+            } catch (ResponseStatusException e) {
+                // A full mailbox already answers 503 BALANCE_BUSY
+                throw e;
+            } catch (RestClientException e) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "CONNECTION_ERROR");
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "SYSTEM_ERROR");
+            }
+            return updated.orElseThrow(() -> balanceUpdateRejected(userId, uuid));
+        });
     }
 
-    @Transactional
-    public void deductBalance(String userId, BigDecimal amount) {
-        User user = validationBalance(userId, amount);
-        if (user.getBalance().compareTo(amount) < 0) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "INSUFFICIENT_BALANCE");
+    // Not @Transactional for the same reason as addBalance: it may wait in the account's mailbox
+    public BigDecimal deductBalance(String userId, BigDecimal amount) {
+        return BalanceMetrics.time("debit", () -> {
+            UUID uuid = validationBalance(userId, amount);
+            Optional<BigDecimal> updated;
+            try {
+                updated = balanceMailboxes.submit(uuid, () -> userRepository.debitBalance(uuid, amount));
+            } catch (ResponseStatusException e) {
+                // A full mailbox already answers 503 BALANCE_BUSY
+                throw e;
+            } catch (RestClientException e) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "CONNECTION_ERROR");
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "SYSTEM_ERROR");
+            }
+            return updated.orElseThrow(() -> balanceUpdateRejected(userId, uuid));
+        });
+    }
+
+    // Inside a transaction (an Idempotency-Key write) the credit has to commit with it, so it is never queued or coalesced
+    private Optional<BigDecimal> credit(UUID uuid, BigDecimal amount) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return userRepository.creditBalance(uuid, amount);
+        }
+        if (!balanceCreditCoalescer.isEnabled()) {
+            return balanceMailboxes.submit(uuid, () -> userRepository.creditBalance(uuid, amount));
         }
         try {
-            BigDecimal newBalance = user.getBalance().subtract(amount);
-            user.setBalance(newBalance);
-            userRepository.save(user);
-        } catch (RestClientException e) {
-            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "CONNECTION_ERROR");
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "SYSTEM_ERROR");
+            return balanceCreditCoalescer.credit(uuid, amount).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
         }
     }
 
-    @Transactional(readOnly = true)
-    protected User validationBalance(String userId, BigDecimal amount) {
+    protected UUID validationBalance(String userId, BigDecimal amount) {
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Amount must be positive");
         }
         if (isNotValidUUID(userId)) {
             throw new IllegalArgumentException("Invalid user ID format: " + userId);
         }
-        UUID uuid = UUID.fromString(userId);
+        return UUID.fromString(userId);
+    }
+
+    // Only reached when the guarded ledger write matched no row, so the happy path never loads the user
+    private RuntimeException balanceUpdateRejected(String userId, UUID uuid) {
         User user = userRepository.findById(uuid)
                 .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
         if (user.getRole() != Role.USER) {
-            throw new IllegalStateException("Only ATTENDEE can perform balance operations");
+            return new IllegalStateException("Only ATTENDEE can perform balance operations");
         }
-        return user;
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "INSUFFICIENT_BALANCE");
     }
 
     @Transactional(readOnly = true)
@@ -154,23 +218,28 @@ public class UserServiceImpl implements UserService {
             throw new IllegalArgumentException("Invalid user ID format: " + userId);
         }
         UUID uuid = UUID.fromString(userId);
-        User user = userRepository.findById(uuid)
-                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
-        if (user.getRole() != Role.USER) {
-            throw new IllegalStateException("Only ATTENDEE can perform balance operations");
-        }
-        return user.getBalance();
+        return userRepository.currentBalance(uuid).orElseThrow(() -> balanceUnavailable(userId, uuid));
+    }
+
+    private RuntimeException balanceUnavailable(String userId, UUID uuid) {
+        return userRepository.existsById(uuid)
+                ? new IllegalStateException("Only ATTENDEE can perform balance operations")
+                : new IllegalArgumentException("User not found with ID: " + userId);
     }
 
 
     private User getCurrentUserEntity() {
+        String currentUserEmail = currentUserEmail();
+        return userRepository.findByEmail(currentUserEmail)
+                .orElseThrow(() -> new UsernameNotFoundException("Current user not found with email: " + currentUserEmail));
+    }
+
+    private String currentUserEmail() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getPrincipal().toString())) {
             throw new UsernameNotFoundException("No authenticated user found or user is anonymous.");
         }
-        String currentUserEmail = authentication.getName();
-        return userRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new UsernameNotFoundException("Current user not found with email: " + currentUserEmail));
+        return authentication.getName();
     }
 
     public UserResponse mapToUserResponse(User user) {
@@ -181,7 +250,7 @@ public class UserServiceImpl implements UserService {
                 .email(user.getEmail())
                 .phoneNumber(user.getPhoneNumber())
                 .role(user.getRole())
-                .balance(user.getBalance())
+                .balance(user.getCurrentBalance())
                 .build();
     }
 
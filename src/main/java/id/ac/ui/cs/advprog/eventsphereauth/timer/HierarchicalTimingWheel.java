@@ -0,0 +1,219 @@
+package id.ac.ui.cs.advprog.eventsphereauth.timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Hashed hierarchical timing wheel (Varghese and Lauck). Each level is a ring of
+ * {@code wheelSize} buckets; a level's tick is the previous level's whole rotation,
+ * so a handful of levels covers any deadline. Scheduling and cancelling are O(1).
+ * Advancing costs one bucket per elapsed tick plus re-filing the entries that move
+ * down from a coarser level, so the work tracks what is coming due, not how much is
+ * pending. Entries fire at most one tick late and never early.
+ * <p>
+ * The wheel has no thread of its own; its owner calls {@link #advance} on a schedule.
+ */
+public final class HierarchicalTimingWheel<T> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long tickMillis;
+    private final int wheelSize;
+    // levels.get(0) is the finest; coarser levels are added when a deadline needs them
+    private final List<Bucket<T>[]> levels = new ArrayList<>();
+    private final List<Long> levelTicks = new ArrayList<>();
+
+    // Start of the current finest tick; everything due before it has fired
+    private long currentTime;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        if (wheelSize < 2) {
+            throw new IllegalArgumentException("Wheel size must be at least 2");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTime = startMillis - Math.floorMod(startMillis, tickMillis);
+        addLevel(tickMillis);
+    }
+
+    // A deadline that has already passed fires on the next advance
+    public Timeout<T> schedule(T value, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(this, value, deadlineMillis);
+        lock.lock();
+        try {
+            place(timeout);
+            size++;
+        } finally {
+            lock.unlock();
+        }
+        return timeout;
+    }
+
+    /**
+     * Moves the wheel up to {@code nowMillis} and hands every entry that came due to
+     * {@code expired}, outside the lock and in deadline order to within a tick.
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        List<T> due = new ArrayList<>();
+        lock.lock();
+        try {
+            while (nowMillis >= currentTime + tickMillis) {
+                if (size == 0) {
+                    currentTime = nowMillis - Math.floorMod(nowMillis, tickMillis);
+                    break;
+                }
+                for (Timeout<T> timeout : slot(0, currentTime).drain()) {
+                    size--;
+                    due.add(timeout.value);
+                }
+                currentTime += tickMillis;
+                // Coarsest first, so entries re-filed from a level land before the level below cascades
+                int top = 0;
+                while (top + 1 < levels.size() && currentTime % levelTicks.get(top + 1) == 0) {
+                    top++;
+                }
+                for (int level = top; level >= 1; level--) {
+                    for (Timeout<T> timeout : slot(level, currentTime).drain()) {
+                        place(timeout);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        due.forEach(expired);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean cancel(Timeout<T> timeout) {
+        lock.lock();
+        try {
+            if (timeout.bucket == null) {
+                return false;
+            }
+            timeout.bucket.remove(timeout);
+            size--;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The finest level whose span from its current slot reaches the deadline
+    private void place(Timeout<T> timeout) {
+        long deadline = Math.max(timeout.deadline, currentTime);
+        for (int level = 0; ; level++) {
+            if (level == levels.size()) {
+                addLevel(Math.multiplyExact(levelTicks.get(level - 1), (long) wheelSize));
+            }
+            long tick = levelTicks.get(level);
+            long levelTime = currentTime - Math.floorMod(currentTime, tick);
+            long span = tick > Long.MAX_VALUE / wheelSize ? Long.MAX_VALUE : tick * wheelSize;
+            if (deadline - levelTime < span) {
+                slot(level, deadline).add(timeout);
+                return;
+            }
+        }
+    }
+
+    private Bucket<T> slot(int level, long time) {
+        return levels.get(level)[(int) Math.floorMod(time / levelTicks.get(level), (long) wheelSize)];
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void addLevel(long tick) {
+        Bucket<T>[] buckets = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new Bucket<>();
+        }
+        levels.add(buckets);
+        levelTicks.add(tick);
+    }
+
+    public static final class Timeout<T> {
+
+        private final HierarchicalTimingWheel<T> wheel;
+        private final T value;
+        private final long deadline;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(HierarchicalTimingWheel<T> wheel, T value, long deadline) {
+            this.wheel = wheel;
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        public T value() {
+            return value;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+
+        // False if the entry already fired or was cancelled
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+
+    // Intrusive doubly linked list, so removal needs no search
+    private static final class Bucket<T> {
+
+        private Timeout<T> head;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        List<Timeout<T>> drain() {
+            List<Timeout<T>> drained = new ArrayList<>();
+            Timeout<T> timeout = head;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.bucket = null;
+                timeout.prev = null;
+                timeout.next = null;
+                drained.add(timeout);
+                timeout = next;
+            }
+            head = null;
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package id.ac.ui.cs.advprog.eventsphereauth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Boots the full app once per thread mode and drives GET /api/users/{id} with many
+ * more concurrent clients than Tomcat has platform threads. A servlet filter adds a
+ * fixed sleep to every request to stand in for the network latency Postgres would
+ * add, which is what makes the thread model matter; H2 in-memory answers too fast
+ * to show it on its own.
+ * <p>
+ * Tagged "load" so no surefire run picks it up by default. Run with:
+ * mvn -PfunctionalTest test -Dtest=ThreadModeLoadFunctionalTest -Dsurefire.excludedGroups=
+ */
+@Tag("load")
+class ThreadModeLoadFunctionalTest {
+
+    private static final int PLATFORM_THREADS = 32;
+    private static final int CLIENTS = 256;
+    private static final int REQUESTS_PER_CLIENT = 20;
+    private static final long SIMULATED_IO_MILLIS = 20;
+
+    private static final String SECRET = "dGhpc2lzYXZlcnlsb25nc2VjcmV0a2V5Zm9ydGVzdGluZ2hzMjU2MTIzNDU2Nzg5";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testVirtualThreadsServeMoreConcurrentRequestsAtLowerTailLatency() throws Exception {
+        LoadResult platform = run(false);
+        LoadResult virtual = run(true);
+
+        assertEquals(0, platform.errors(), platform::toString);
+        assertEquals(0, virtual.errors(), virtual::toString);
+        assertTrue(platform.maxInFlight() <= PLATFORM_THREADS, platform::toString);
+        assertTrue(virtual.maxInFlight() > PLATFORM_THREADS, virtual::toString);
+        assertTrue(virtual.p99Millis() < platform.p99Millis(), () -> platform + " vs " + virtual);
+    }
+
+    private LoadResult run(boolean virtualThreads) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        if (virtualThreads) {
+            properties.put("spring.profiles.active", "virtual-threads");
+        }
+        properties.put("server.tomcat.threads.max", PLATFORM_THREADS);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:load-" + virtualThreads + ";DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.show-sql", false);
+        properties.put("spring.devtools.restart.enabled", false);
+        properties.put("jwt.secret-key", SECRET);
+        properties.put("app.admin.email", "admin@example.com");
+        properties.put("app.admin.password", "admin");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                EventSphereAuthApplication.class, InFlightProbe.class)
+                .run(args(properties))) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            InFlightProbe probe = context.getBean(InFlightProbe.class);
+            return drive(virtualThreads ? "virtual" : "platform", baseUrl, probe);
+        }
+    }
+
+    // Command-line arguments, because default properties lose to application.properties
+    private static String[] args(Map<String, Object> properties) {
+        return properties.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+    }
+
+    private LoadResult drive(String mode, String baseUrl, InFlightProbe probe) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        JsonNode auth = objectMapper.readTree(client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("""
+                        {"username":"load","email":"load@example.com","phoneNumber":"0800","password":"password"}
+                        """))
+                .build(), HttpResponse.BodyHandlers.ofString()).body());
+        HttpRequest getUser = HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/" + auth.at("/user/id").asText()))
+                .header("Authorization", "Bearer " + auth.get("token").asText())
+                .GET()
+                .build();
+
+        // Warm up the JIT, the connection pool and the caches before measuring
+        for (int i = 0; i < 50; i++) {
+            client.send(getUser, HttpResponse.BodyHandlers.discarding());
+        }
+        probe.reset();
+
+        long[] latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?>[] futures = new Future<?>[CLIENTS];
+            for (int c = 0; c < CLIENTS; c++) {
+                futures[c] = clients.submit(() -> {
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(getUser, HttpResponse.BodyHandlers.discarding());
+                        latencies[next.getAndIncrement()] = System.nanoTime() - start;
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        }
+
+        Arrays.sort(latencies);
+        return new LoadResult(mode, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                latencies[latencies.length - 1] / 1_000_000.0, probe.maxInFlight(), errors.get());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    record LoadResult(String mode, double p50Millis, double p99Millis, double maxMillis, long maxInFlight, int errors) {
+
+        @Override
+        public String toString() {
+            return String.format("%s: p50 %.1fms, p99 %.1fms, max %.1fms, max in flight %d, errors %d",
+                    mode, p50Millis, p99Millis, maxMillis, maxInFlight, errors);
+        }
+    }
+
+    @Configuration
+    static class InFlightProbe {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong maxInFlight = new AtomicLong();
+
+        @Bean
+        FilterRegistrationBean<Filter> inFlightFilter() {
+            Filter filter = (request, response, chain) -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(SIMULATED_IO_MILLIS);
+                    chain.doFilter(request, response);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            };
+            FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(filter);
+            registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+            return registration;
+        }
+
+        void reset() {
+            maxInFlight.set(0);
+        }
+
+        long maxInFlight() {
+            return maxInFlight.get();
+        }
+    }
+}
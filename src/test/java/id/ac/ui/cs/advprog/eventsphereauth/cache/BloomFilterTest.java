@@ -0,0 +1,77 @@
+package id.ac.ui.cs.advprog.eventsphereauth.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testNeverMissesAnAddedKey() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        String[] keys = new String[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UUID.randomUUID().toString();
+            filter.put(BloomFilter.hash(keys[i]));
+        }
+
+        for (String key : keys) {
+            assertTrue(filter.mightContain(BloomFilter.hash(key)));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateStaysNearTargetAtCapacity() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(BloomFilter.hash(UUID.randomUUID().toString()));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(BloomFilter.hash(UUID.randomUUID().toString()))) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testSizingFollowsTheStandardFormulas() {
+        BloomFilter filter = BloomFilter.create(1_000, 0.01);
+
+        // m = 1000 * ln(100) / ln(2)^2 = 9586 bits, rounded up to whole words; k = 7
+        assertEquals(9600, filter.bitSize());
+        assertEquals(7, filter.hashCount());
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(10, 1.0));
+    }
+
+    @Test
+    void testConcurrentPutsAreNotLost() throws InterruptedException {
+        BloomFilter filter = BloomFilter.create(64_000, 0.01);
+        String[][] keys = new String[8][8_000];
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (String[] slice : keys) {
+                executor.submit(() -> {
+                    for (int i = 0; i < slice.length; i++) {
+                        slice[i] = UUID.randomUUID().toString();
+                        filter.put(BloomFilter.hash(slice[i]));
+                    }
+                });
+            }
+        }
+
+        for (String[] slice : keys) {
+            for (String key : slice) {
+                assertTrue(filter.mightContain(BloomFilter.hash(key)));
+            }
+        }
+    }
+}
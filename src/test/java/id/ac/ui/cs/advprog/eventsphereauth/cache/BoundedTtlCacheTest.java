@@ -0,0 +1,162 @@
+package id.ac.ui.cs.advprog.eventsphereauth.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedTtlCacheTest {
+
+    private MutableClock clock;
+    private BoundedTtlCache<String, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        cache = new BoundedTtlCache<>(2, 1000, clock);
+    }
+
+    @Test
+    void testGetReturnsCachedValueAndCountsHit() {
+        cache.put("a", "1");
+
+        assertEquals("1", cache.get("a"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(0, cache.missCount());
+    }
+
+    @Test
+    void testGetMissingKeyCountsMiss() {
+        assertNull(cache.get("missing"));
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void testLoaderIsOnlyCalledOnMiss() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", key -> "v" + loads.incrementAndGet());
+        String value = cache.get("a", key -> "v" + loads.incrementAndGet());
+
+        assertEquals("v1", value);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testEntryExpiresAfterTtl() {
+        cache.put("a", "1");
+        clock.advance(1000);
+
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.expirationCount());
+        assertEquals(0, cache.evictionCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvictedWhenFull() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    void testExpiredEntryIsEvictedBeforeLiveOnesWhenFull() {
+        cache.put("a", "1");
+        clock.advance(600);
+        cache.put("b", "2");
+        cache.get("b");
+        clock.advance(600);
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("2", cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.expirationCount());
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    void testConcurrentReadsAndWritesStayNearTheBound() throws Exception {
+        BoundedTtlCache<Integer, Integer> shared = new BoundedTtlCache<>(100, 60_000);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 10_000;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    shared.get(offset + i % 500, key -> key);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // A put that finds another thread evicting leaves its entry for the next put to trim
+        assertTrue(shared.size() <= 100 + threads);
+        assertTrue(shared.evictionCount() > 0);
+    }
+
+    @Test
+    void testInvalidateRemovesEntry() {
+        cache.put("a", "1");
+        cache.invalidate("a");
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void testRejectsNonPositiveBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedTtlCache<String, String>(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedTtlCache<String, String>(1, 0));
+    }
+
+    static class MutableClock extends Clock {
+        private long millis = 1_000_000L;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
@@ -86,4 +86,12 @@ class AdminControllerTest {
 
         verify(adminService, times(1)).createAdminOrOrganizer(registerRequest);
     }
+
+    @Test
+    void testRevokeSessionsReturnsNoContent() {
+        ResponseEntity<Void> responseEntity = adminController.revokeSessions(userId);
+
+        assertEquals(HttpStatus.NO_CONTENT, responseEntity.getStatusCode());
+        verify(adminService).revokeSessions(userId);
+    }
 }
@@ -2,10 +2,14 @@ package id.ac.ui.cs.advprog.eventsphereauth.controller;
 
 import id.ac.ui.cs.advprog.eventsphereauth.dto.AuthResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.LoginRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.RefreshRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.RegisterRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.security.PasswordHashingBusyException;
 import id.ac.ui.cs.advprog.eventsphereauth.service.AuthService;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -112,4 +116,44 @@ class AuthControllerTest {
 
         verify(authService, times(1)).login(loginRequest);
     }
+
+    @Test
+    void testLoginRejectedByHashingPoolIsRecordedAndRethrown() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            when(authService.login(loginRequest)).thenThrow(new PasswordHashingBusyException(1));
+
+            PasswordHashingBusyException ex = assertThrows(PasswordHashingBusyException.class,
+                    () -> authController.login(loginRequest));
+
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+            assertEquals(1, registry.get("auth.login").tag("outcome", "rejected").timer().count());
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+
+    @Test
+    void testRefreshSuccess() {
+        RefreshRequest refreshRequest = new RefreshRequest("refresh");
+        when(authService.refresh(refreshRequest)).thenReturn(authResponse);
+
+        ResponseEntity<AuthResponse> responseEntity = authController.refresh(refreshRequest);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(authResponse, responseEntity.getBody());
+    }
+
+    @Test
+    void testLogoutReturnsNoContentAndPassesBearerToken() {
+        RefreshRequest refreshRequest = new RefreshRequest("refresh");
+
+        ResponseEntity<Void> responseEntity = authController.logout(refreshRequest, "Bearer access");
+        authController.logout(refreshRequest, null);
+
+        assertEquals(HttpStatus.NO_CONTENT, responseEntity.getStatusCode());
+        verify(authService).logout(refreshRequest, "access");
+        verify(authService).logout(refreshRequest, null);
+    }
 }
@@ -1,5 +1,16 @@
 package id.ac.ui.cs.advprog.eventsphereauth.controller;
 
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceAmountRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceBatchRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceBatchResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceOperation;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.HoldRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.HoldResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus;
+import id.ac.ui.cs.advprog.eventsphereauth.model.MinorUnits;
+import id.ac.ui.cs.advprog.eventsphereauth.service.BalanceBatchService;
+import id.ac.ui.cs.advprog.eventsphereauth.service.BalanceHoldService;
+import id.ac.ui.cs.advprog.eventsphereauth.service.IdempotencyService;
 import id.ac.ui.cs.advprog.eventsphereauth.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,6 +33,12 @@ class BalanceControllerTest {
 
     @Mock
     private UserService userService;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Mock
+    private BalanceBatchService balanceBatchService;
+    @Mock
+    private BalanceHoldService balanceHoldService;
 
     @InjectMocks
     private BalanceController balanceController;
@@ -37,35 +54,32 @@ class BalanceControllerTest {
 
     @Test
     void addBalanceSuccess() {
-        Map<String, Double> payload = new HashMap<>();
-        payload.put("amount", 50.0);
+        BalanceAmountRequest payload = new BalanceAmountRequest(5000);
 
-        BigDecimal amount = BigDecimal.valueOf(payload.get("amount"));
+        BigDecimal amount = MinorUnits.toDecimal(payload.getAmount());
 
-        doNothing().when(userService).addBalance(user1Id.toString(), amount);
-        when(userService.getBalance(user1Id.toString())).thenReturn(amount);
+        when(userService.addBalance(user1Id.toString(), amount)).thenReturn(amount);
 
-        ResponseEntity<Void> response = balanceController.addBalance(user1Id, payload);
+        ResponseEntity<BigDecimal> response = balanceController.addBalance(user1Id, payload, null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertNull(response.getBody());
+        assertEquals(amount, response.getBody());
         verify(userService, times(1)).addBalance(user1Id.toString(), amount);
-        verify(userService, times(1)).getBalance(user1Id.toString());
+        verify(userService, never()).getBalance(any());
     }
 
     @Test
     void addBalanceUserNotFoundReturns404() {
-        Map<String, Double> payload = new HashMap<>();
-        payload.put("amount", 50.0);
+        BalanceAmountRequest payload = new BalanceAmountRequest(5000);
 
-        BigDecimal amount = BigDecimal.valueOf(payload.get("amount"));
+        BigDecimal amount = MinorUnits.toDecimal(payload.getAmount());
 
         doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND))
                 .when(userService).addBalance(user1Id.toString(), amount);
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
-                () -> balanceController.addBalance(user1Id, payload));
+                () -> balanceController.addBalance(user1Id, payload, null));
 
         assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
         verify(userService).addBalance(user1Id.toString(), amount);
@@ -73,35 +87,32 @@ class BalanceControllerTest {
 
     @Test
     void deductBalanceSuccess() {
-        Map<String, Double> payload = new HashMap<>();
-        payload.put("amount", 30.0);
+        BalanceAmountRequest payload = new BalanceAmountRequest(3000);
 
-        BigDecimal amount = BigDecimal.valueOf(payload.get("amount"));
+        BigDecimal amount = MinorUnits.toDecimal(payload.getAmount());
 
-        doNothing().when(userService).deductBalance(user1Id.toString(), amount);
-        when(userService.getBalance(user1Id.toString())).thenReturn(BigDecimal.ZERO);
+        when(userService.deductBalance(user1Id.toString(), amount)).thenReturn(BigDecimal.ZERO);
 
-        ResponseEntity<Void> response = balanceController.deductBalance(user1Id, payload);
+        ResponseEntity<BigDecimal> response = balanceController.deductBalance(user1Id, payload, null);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertNull(response.getBody());
+        assertEquals(BigDecimal.ZERO, response.getBody());
         verify(userService).deductBalance(user1Id.toString(), amount);
-        verify(userService).getBalance(user1Id.toString());
+        verify(userService, never()).getBalance(any());
     }
 
     @Test
     void deductBalanceInsufficientFundsReturns400() {
-        Map<String, Double> payload = new HashMap<>();
-        payload.put("amount", 200.0);
+        BalanceAmountRequest payload = new BalanceAmountRequest(20000);
 
-        BigDecimal amount = BigDecimal.valueOf(payload.get("amount"));
+        BigDecimal amount = MinorUnits.toDecimal(payload.getAmount());
 
         doThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST))
                 .when(userService).deductBalance(user1Id.toString(), amount);
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
-                () -> balanceController.deductBalance(user1Id, payload));
+                () -> balanceController.deductBalance(user1Id, payload, null));
 
         assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
         verify(userService).deductBalance(user1Id.toString(), amount);
@@ -109,16 +120,15 @@ class BalanceControllerTest {
 
     @Test
     void deductBalanceSystemErrorReturns500() {
-        Map<String, Double> payload = new HashMap<>();
-        payload.put("amount", 50.0);
+        BalanceAmountRequest payload = new BalanceAmountRequest(5000);
 
-        BigDecimal amount = BigDecimal.valueOf(payload.get("amount"));
+        BigDecimal amount = MinorUnits.toDecimal(payload.getAmount());
 
         doThrow(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR))
                 .when(userService).deductBalance(user1Id.toString(), amount);
 
         ResponseStatusException ex = assertThrows(ResponseStatusException.class,
-                () -> balanceController.deductBalance(user1Id, payload));
+                () -> balanceController.deductBalance(user1Id, payload, null));
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, ex.getStatusCode());
         verify(userService).deductBalance(user1Id.toString(), amount);
@@ -160,4 +170,92 @@ class BalanceControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
         verify(userService).getBalance(user1Id.toString());
     }
+
+    @Test
+    void addBalanceWithIdempotencyKeyGoesThroughStore() {
+        BalanceAmountRequest payload = new BalanceAmountRequest(5000);
+        BigDecimal amount = MinorUnits.toDecimal(5000);
+        when(idempotencyService.execute(eq("retry-1"), eq("add"), eq(user1Id.toString()), eq(amount), any()))
+                .thenReturn(BigDecimal.valueOf(150));
+
+        ResponseEntity<BigDecimal> response = balanceController.addBalance(user1Id, payload, "retry-1");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(BigDecimal.valueOf(150), response.getBody());
+        verify(idempotencyService).execute(eq("retry-1"), eq("add"), eq(user1Id.toString()), eq(amount), any());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void deductBalanceWithoutIdempotencyKeySkipsStore() {
+        BalanceAmountRequest payload = new BalanceAmountRequest(1000);
+
+        balanceController.deductBalance(user1Id, payload, null);
+
+        verify(userService).deductBalance(user1Id.toString(), MinorUnits.toDecimal(1000));
+        verifyNoInteractions(idempotencyService);
+    }
+
+    @Test
+    void applyBatchDelegatesToBatchService() {
+        List<BalanceOperation> operations = List.of(
+                new BalanceOperation(user1Id, 1000L),
+                new BalanceOperation(user2Id, 100L));
+        BalanceBatchResponse expected = BalanceBatchResponse.builder()
+                .succeeded(2)
+                .failed(0)
+                .results(List.of())
+                .build();
+        when(balanceBatchService.applyBatch(operations)).thenReturn(expected);
+
+        ResponseEntity<BalanceBatchResponse> response =
+                balanceController.applyBatch(new BalanceBatchRequest(operations));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(expected, response.getBody());
+        verifyNoInteractions(userService, idempotencyService);
+    }
+
+    @Test
+    void reserveHoldDelegatesToHoldService() {
+        HoldResponse hold = HoldResponse.builder()
+                .id(UUID.randomUUID())
+                .userId(user1Id)
+                .amount(BigDecimal.TEN)
+                .status(HoldStatus.HELD)
+                .balance(BigDecimal.valueOf(40))
+                .build();
+        when(balanceHoldService.reserve(user1Id, MinorUnits.toDecimal(1000), 60L)).thenReturn(hold);
+
+        ResponseEntity<HoldResponse> response =
+                balanceController.reserveHold(user1Id, new HoldRequest(1000, 60L));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(hold, response.getBody());
+        verifyNoInteractions(userService, idempotencyService);
+    }
+
+    @Test
+    void captureReleasedHoldReturns409() {
+        UUID holdId = UUID.randomUUID();
+        when(balanceHoldService.capture(holdId))
+                .thenThrow(new ResponseStatusException(HttpStatus.CONFLICT, "HOLD_RELEASED"));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> balanceController.captureHold(holdId));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+    }
+
+    @Test
+    void releaseHoldDelegatesToHoldService() {
+        UUID holdId = UUID.randomUUID();
+        HoldResponse hold = HoldResponse.builder().id(holdId).status(HoldStatus.RELEASED).build();
+        when(balanceHoldService.release(holdId)).thenReturn(hold);
+
+        ResponseEntity<HoldResponse> response = balanceController.releaseHold(holdId);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(hold, response.getBody());
+    }
 }
@@ -0,0 +1,42 @@
+package id.ac.ui.cs.advprog.eventsphereauth.controller;
+
+import id.ac.ui.cs.advprog.eventsphereauth.security.JwtKeyRing;
+import id.ac.ui.cs.advprog.eventsphereauth.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwksControllerTest {
+
+    @Mock
+    private JwtService jwtService;
+
+    @InjectMocks
+    private JwksController jwksController;
+
+    @Test
+    void testJwksIsPubliclyCacheableWithETag() {
+        ReflectionTestUtils.setField(jwksController, "maxAgeSeconds", 300L);
+        Map<String, Object> jwk = Map.of("kty", "RSA", "kid", "k1", "n", "abc", "e", "AQAB");
+        when(jwtService.jwkSet()).thenReturn(new JwtKeyRing.JwkSet(List.of(jwk), "\"etag-1\""));
+
+        ResponseEntity<Map<String, List<Map<String, Object>>>> response = jwksController.jwks();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("max-age=300, public", response.getHeaders().getCacheControl());
+        assertEquals("\"etag-1\"", response.getHeaders().getETag());
+        assertEquals(List.of(jwk), response.getBody().get("keys"));
+    }
+}
@@ -1,5 +1,7 @@
 package id.ac.ui.cs.advprog.eventsphereauth.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.UserPageResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserUpdateRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
@@ -9,14 +11,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,6 +34,8 @@ class UserControllerTest {
 
     @Mock
     private UserService userService;
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
 
     @InjectMocks
     private UserController userController;
@@ -60,17 +70,40 @@ class UserControllerTest {
     }
 
     @Test
-    void testGetAllUsersSuccess() {
-        List<UserResponse> userResponses = Arrays.asList(userResponse1, userResponse2);
-        when(userService.getAllUsers()).thenReturn(userResponses);
+    void testGetUsersSuccess() {
+        UserPageResponse page = UserPageResponse.builder()
+                .users(Arrays.asList(userResponse1, userResponse2))
+                .nextCursor(user2Id)
+                .build();
+        when(userService.getUsers(null, 100)).thenReturn(page);
 
-        ResponseEntity<List<UserResponse>> responseEntity = userController.getAllUsers();
+        ResponseEntity<UserPageResponse> responseEntity = userController.getUsers(null, 100);
 
         assertNotNull(responseEntity);
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
-        assertEquals(userResponses, responseEntity.getBody());
+        assertEquals(page, responseEntity.getBody());
+
+        verify(userService, times(1)).getUsers(null, 100);
+    }
 
-        verify(userService, times(1)).getAllUsers();
+    @Test
+    void testExportUsersWritesOneJsonObjectPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<UserResponse> sink = invocation.getArgument(0);
+            sink.accept(userResponse1);
+            sink.accept(userResponse2);
+            return null;
+        }).when(userService).exportUsers(any());
+
+        ResponseEntity<StreamingResponseBody> responseEntity = userController.exportUsers();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        responseEntity.getBody().writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(MediaType.APPLICATION_NDJSON, responseEntity.getHeaders().getContentType());
+        assertEquals(2, lines.length);
+        assertEquals(user1Id.toString(), objectMapper.readTree(lines[0]).get("id").asText());
+        assertEquals(user2Id.toString(), objectMapper.readTree(lines[1]).get("id").asText());
     }
 
     @Test
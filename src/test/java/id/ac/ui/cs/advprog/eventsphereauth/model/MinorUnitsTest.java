@@ -0,0 +1,84 @@
+package id.ac.ui.cs.advprog.eventsphereauth.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceAmountRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceOperation;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.HoldRequest;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinorUnitsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void parsesPlainDecimalsExactly() {
+        assertEquals(1250, MinorUnits.parse("12.5"));
+        assertEquals(1250, MinorUnits.parse("12.50"));
+        assertEquals(1200, MinorUnits.parse("12"));
+        assertEquals(1, MinorUnits.parse("0.01"));
+        assertEquals(-5, MinorUnits.parse("-0.05"));
+        assertEquals(10, MinorUnits.parse(".1"));
+        assertEquals(1234, MinorUnits.parse("12.3400"));
+    }
+
+    @Test
+    void rejectsAmountsItCannotRepresentExactly() {
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.parse("0.005"));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.parse("1e3"));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.parse("1.2.3"));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.parse("-"));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.parse("."));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.parse("92233720368547758.08"));
+    }
+
+    @Test
+    void convertsToAndFromDecimal() {
+        assertEquals(new BigDecimal("120.75"), MinorUnits.toDecimal(12075));
+        assertEquals(12075, MinorUnits.of(new BigDecimal("120.75")));
+        assertEquals(12000, MinorUnits.of(BigDecimal.valueOf(120)));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.of(new BigDecimal("0.001")));
+    }
+
+    @Test
+    void requestAmountIsReadAsMinorUnits() throws Exception {
+        assertEquals(5000, objectMapper.readValue("{\"amount\": 50.0}", BalanceAmountRequest.class).getAmount());
+        assertEquals(1999, objectMapper.readValue("{\"amount\": 19.99}", BalanceAmountRequest.class).getAmount());
+        assertEquals(700, objectMapper.readValue("{\"amount\": 7}", BalanceAmountRequest.class).getAmount());
+        assertEquals(1050, objectMapper.readValue("{\"amount\": \"10.50\"}", BalanceAmountRequest.class).getAmount());
+    }
+
+    @Test
+    void requestAmountFinerThanScaleIsRejected() {
+        assertThrows(InvalidFormatException.class,
+                () -> objectMapper.readValue("{\"amount\": 0.001}", BalanceAmountRequest.class));
+    }
+
+    @Test
+    void holdAmountsAndBatchDeltasAreReadAsMinorUnits() throws Exception {
+        assertEquals(1250, objectMapper.readValue("{\"amount\": 12.50}", HoldRequest.class).getAmount());
+        assertEquals(-1999L, objectMapper.readValue("{\"delta\": -19.99}", BalanceOperation.class).getDelta());
+        assertNull(objectMapper.readValue("{\"delta\": null}", BalanceOperation.class).getDelta());
+        assertThrows(InvalidFormatException.class,
+                () -> objectMapper.readValue("{\"amount\": 0.001}", HoldRequest.class));
+        assertThrows(InvalidFormatException.class,
+                () -> objectMapper.readValue("{\"delta\": 0.001}", BalanceOperation.class));
+    }
+
+    @Test
+    void userBalanceIsHeldInMinorUnits() {
+        User user = new User("attendee", "attendee@example.com", "000", "password");
+        user.setRole(Role.USER);
+
+        user.setBalance(new BigDecimal("10.5"));
+
+        assertEquals(1050L, user.getBalanceMinorUnits());
+        assertEquals(new BigDecimal("10.50"), user.getBalance());
+        assertThrows(IllegalArgumentException.class, () -> user.setBalanceMinorUnits(-1));
+        assertThrows(IllegalArgumentException.class, () -> user.setBalance(new BigDecimal("0.001")));
+    }
+}
@@ -0,0 +1,51 @@
+package id.ac.ui.cs.advprog.eventsphereauth.repository;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.IdempotencyRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class IdempotencyRecordRepositoryTest {
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    private IdempotencyRecord record(String id, Instant expiresAt) {
+        return IdempotencyRecord.builder()
+                .id(id)
+                .operation("add")
+                .userId(UUID.randomUUID())
+                .amount(BigDecimal.TEN)
+                .resultBalance(BigDecimal.TEN)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    void testDuplicateKeyFailsInsteadOfOverwriting() {
+        recordRepository.saveAndFlush(record("add:user:key", Instant.now().plusSeconds(60)));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> recordRepository.saveAndFlush(record("add:user:key", Instant.now().plusSeconds(60))));
+    }
+
+    @Test
+    void testDeleteExpiredRemovesOnlyExpiredRecords() {
+        recordRepository.saveAndFlush(record("expired", Instant.now().minusSeconds(60)));
+        recordRepository.saveAndFlush(record("live", Instant.now().plusSeconds(60)));
+
+        int deleted = recordRepository.deleteExpired(Instant.now());
+
+        assertEquals(1, deleted);
+        assertTrue(recordRepository.findById("live").isPresent());
+        assertFalse(recordRepository.findById("expired").isPresent());
+    }
+}
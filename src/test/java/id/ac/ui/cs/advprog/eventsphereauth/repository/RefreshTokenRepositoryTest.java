@@ -0,0 +1,55 @@
+package id.ac.ui.cs.advprog.eventsphereauth.repository;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.RefreshToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class RefreshTokenRepositoryTest {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private RefreshToken token(String hash, UUID familyId, Instant expiresAt) {
+        return RefreshToken.builder()
+                .tokenHash(hash)
+                .familyId(familyId)
+                .userId(UUID.randomUUID())
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    void testMarkRotatedSucceedsOnceAndNeverForExpiredTokens() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        refreshTokenRepository.saveAndFlush(token("live", UUID.randomUUID(), now.plusSeconds(60)));
+        refreshTokenRepository.saveAndFlush(token("expired", UUID.randomUUID(), now.minusSeconds(60)));
+
+        assertEquals(1, refreshTokenRepository.markRotated("live", now));
+        assertEquals(0, refreshTokenRepository.markRotated("live", now));
+        assertEquals(0, refreshTokenRepository.markRotated("expired", now));
+        assertEquals(0, refreshTokenRepository.markRotated("unknown", now));
+        assertEquals(now, refreshTokenRepository.findById("live").orElseThrow().getRotatedAt());
+    }
+
+    @Test
+    void testDeleteFamilyAndDeleteExpired() {
+        UUID family = UUID.randomUUID();
+        refreshTokenRepository.saveAndFlush(token("a", family, Instant.now().plusSeconds(60)));
+        refreshTokenRepository.saveAndFlush(token("b", family, Instant.now().plusSeconds(60)));
+        refreshTokenRepository.saveAndFlush(token("other", UUID.randomUUID(), Instant.now().plusSeconds(60)));
+        refreshTokenRepository.saveAndFlush(token("old", UUID.randomUUID(), Instant.now().minusSeconds(60)));
+
+        assertEquals(2, refreshTokenRepository.deleteFamily(family));
+        assertEquals(1, refreshTokenRepository.deleteExpired(Instant.now()));
+        assertEquals(1, refreshTokenRepository.count());
+        assertTrue(refreshTokenRepository.findById("other").isPresent());
+    }
+}
@@ -0,0 +1,48 @@
+package id.ac.ui.cs.advprog.eventsphereauth.repository;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.RevokedToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class RevokedTokenRepositoryTest {
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private RevokedToken entry(String id, Instant revokedAt, Instant expiresAt) {
+        return RevokedToken.builder().id(id).revokedAt(revokedAt).expiresAt(expiresAt).build();
+    }
+
+    @Test
+    void testQueriesSelectByRevocationAndExpiryTime() {
+        Instant now = Instant.now();
+        revokedTokenRepository.saveAndFlush(entry("jti:old", now.minusSeconds(120), now.minusSeconds(60)));
+        revokedTokenRepository.saveAndFlush(entry("jti:live", now.minusSeconds(30), now.plusSeconds(60)));
+        revokedTokenRepository.saveAndFlush(entry("user:recent", now, now.plusSeconds(60)));
+
+        assertEquals(List.of("jti:live", "user:recent"), revokedTokenRepository.findByExpiresAtAfter(now).stream()
+                .map(RevokedToken::getId).sorted().toList());
+        assertEquals(List.of("user:recent"), revokedTokenRepository.findByRevokedAtGreaterThanEqual(now.minusSeconds(10))
+                .stream().map(RevokedToken::getId).toList());
+        assertEquals(1, revokedTokenRepository.deleteExpired(now));
+        assertFalse(revokedTokenRepository.existsById("jti:old"));
+    }
+
+    @Test
+    void testRevokingAUserAgainMovesTheEpochForward() {
+        Instant first = Instant.now().minusSeconds(60);
+        Instant second = Instant.now();
+        revokedTokenRepository.saveAndFlush(entry("user:u", first, first.plusSeconds(900)));
+        revokedTokenRepository.saveAndFlush(entry("user:u", second, second.plusSeconds(900)));
+
+        assertEquals(1, revokedTokenRepository.count());
+        assertTrue(revokedTokenRepository.findById("user:u").orElseThrow().getRevokedAt().isAfter(first));
+    }
+}
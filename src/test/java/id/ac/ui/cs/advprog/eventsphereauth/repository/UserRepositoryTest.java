@@ -1,15 +1,25 @@
 package id.ac.ui.cs.advprog.eventsphereauth.repository;
 
+import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.model.BalanceEntry;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
 import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import org.hibernate.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,6 +29,9 @@ class UserRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private BalanceEntryRepository balanceEntryRepository;
+
     @Autowired
     private TestEntityManager entityManager;
 
@@ -109,4 +122,137 @@ class UserRepositoryTest {
         Optional<User> foundUser2 = userRepository.findById(user2.getId());
         assertTrue(foundUser2.isPresent());
     }
+
+    @Test
+    void testCreditBalanceAppendsToTheLedger() {
+        Optional<BigDecimal> updated = userRepository.creditBalance(user2.getId(), BigDecimal.valueOf(25));
+
+        assertEquals(0, BigDecimal.valueOf(75).compareTo(updated.orElseThrow()));
+        assertEquals(0, BigDecimal.valueOf(75).compareTo(userRepository.currentBalance(user2.getId()).orElseThrow()));
+        // The snapshot only moves when the snapshot job folds the entry in
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(userRepository.findById(user2.getId()).get().getBalance()));
+        List<BalanceEntry> entries = balanceEntryRepository.findByUserIdOrderById(user2.getId());
+        assertEquals(1, entries.size());
+        assertEquals("credit", entries.get(0).getOperation());
+        assertEquals(0, BigDecimal.valueOf(25).compareTo(entries.get(0).getDelta()));
+    }
+
+    @Test
+    void testDebitBalanceRefusesToGoNegative() {
+        Optional<BigDecimal> updated = userRepository.debitBalance(user2.getId(), BigDecimal.valueOf(60));
+
+        assertTrue(updated.isEmpty());
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(userRepository.currentBalance(user2.getId()).orElseThrow()));
+        assertTrue(balanceEntryRepository.findByUserIdOrderById(user2.getId()).isEmpty());
+    }
+
+    @Test
+    void testDebitBalanceSubtractsWhenFundsAvailable() {
+        userRepository.creditBalance(user2.getId(), BigDecimal.valueOf(10));
+
+        Optional<BigDecimal> updated = userRepository.debitBalance(user2.getId(), BigDecimal.valueOf(60));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(updated.orElseThrow()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(userRepository.currentBalance(user2.getId()).orElseThrow()));
+        assertEquals(List.of("credit", "debit"), balanceEntryRepository.findByUserIdOrderById(user2.getId()).stream()
+                .map(BalanceEntry::getOperation).toList());
+    }
+
+    @Test
+    void testResponsesIncludeLedgerEntriesSinceTheSnapshot() {
+        userRepository.creditBalance(user2.getId(), BigDecimal.valueOf(5));
+        userRepository.debitBalance(user2.getId(), BigDecimal.valueOf(20));
+
+        assertEquals(0, BigDecimal.valueOf(35).compareTo(userRepository.findResponseById(user2.getId()).orElseThrow().getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(userRepository.findResponseById(user1.getId()).orElseThrow().getBalance()));
+    }
+
+    @Test
+    void testFindWithBalanceAttachesTheLedgerInclusiveBalance() {
+        userRepository.creditBalance(user2.getId(), BigDecimal.valueOf(5));
+
+        User byEmail = userRepository.findWithBalanceByEmail("test2@example.com").orElseThrow().user();
+        User byId = userRepository.findWithBalanceById(user2.getId()).orElseThrow().user();
+
+        assertEquals(user2.getId(), byEmail.getId());
+        assertEquals(0, BigDecimal.valueOf(55).compareTo(byEmail.getCurrentBalance()));
+        assertEquals(0, BigDecimal.valueOf(55).compareTo(byId.getCurrentBalance()));
+        // The snapshot column itself is untouched
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(byEmail.getBalance()));
+        assertTrue(userRepository.findWithBalanceByEmail("nonexistent@example.com").isEmpty());
+    }
+
+    @Test
+    void testMutationsOnlyEvictTheAffectedUser() {
+        userRepository.creditBalance(user2.getId(), BigDecimal.ONE);
+
+        assertTrue(entityManager.getEntityManager().contains(user1));
+        assertFalse(entityManager.getEntityManager().contains(user2));
+    }
+
+    @Test
+    void testLockBalancesReturnsOnlyAttendees() {
+        User organizer = new User("organizer", "organizer@example.com", "444", "password");
+        organizer.setRole(Role.ORGANIZER);
+        entityManager.persistAndFlush(organizer);
+        userRepository.creditBalance(user2.getId(), BigDecimal.ONE);
+
+        Map<UUID, BigDecimal> balances = userRepository.lockBalances(List.of(user2.getId(), organizer.getId(), UUID.randomUUID()));
+
+        assertEquals(Set.of(user2.getId()), balances.keySet());
+        assertEquals(0, BigDecimal.valueOf(51).compareTo(balances.get(user2.getId())));
+    }
+
+    @Test
+    void testCreditBalanceIgnoresNonAttendee() {
+        User organizer = new User("organizer", "organizer@example.com", "444", "password");
+        organizer.setRole(Role.ORGANIZER);
+        entityManager.persistAndFlush(organizer);
+
+        assertTrue(userRepository.creditBalance(organizer.getId(), BigDecimal.ONE).isEmpty());
+    }
+
+    @Test
+    void testKeysetPagesWalkEveryUserOnce() {
+        List<UUID> seen = new ArrayList<>();
+        List<UserResponse> page = userRepository.findResponsesOrderById(Limit.of(1));
+        while (!page.isEmpty()) {
+            assertEquals(1, page.size());
+            seen.add(page.get(0).getId());
+            page = userRepository.findResponsesAfter(page.get(0).getId(), Limit.of(1));
+        }
+
+        assertEquals(2, seen.size());
+        assertTrue(seen.containsAll(List.of(user1.getId(), user2.getId())));
+    }
+
+    @Test
+    void testStreamResponsesOrderByIdReturnsEveryUser() {
+        try (Stream<UserResponse> users = userRepository.streamResponsesOrderById()) {
+            assertEquals(2, users.count());
+        }
+    }
+
+    @Test
+    void testFindResponseByIdDoesNotLoadTheEntity() {
+        entityManager.clear();
+
+        Optional<UserResponse> response = userRepository.findResponseById(user2.getId());
+
+        assertTrue(response.isPresent());
+        assertEquals("testuser2", response.get().getUsername());
+        assertEquals("test2@example.com", response.get().getEmail());
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(response.get().getBalance()));
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void testFindResponseByEmailMatchesFindByEmail() {
+        Optional<UserResponse> response = userRepository.findResponseByEmail("test1@example.com");
+
+        assertTrue(response.isPresent());
+        assertEquals(user1.getId(), response.get().getId());
+        assertEquals(Role.USER, response.get().getRole());
+        assertTrue(userRepository.findResponseByEmail("nonexistent@example.com").isEmpty());
+    }
 }
@@ -0,0 +1,120 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private BoundedPasswordEncoder encoder;
+    private ExecutorService callers;
+
+    @AfterEach
+    void tearDown() {
+        if (encoder != null) {
+            encoder.close();
+        }
+        if (callers != null) {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testEncodeAndMatchesDelegate() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4, 5000, 1);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("wrong", hash));
+    }
+
+    @Test
+    void testRejectsWithRetryAfterWhenQueueIsFull() throws Exception {
+        BlockingEncoder blocking = new BlockingEncoder();
+        encoder = new BoundedPasswordEncoder(blocking, 1, 1, 5000, 3);
+        callers = Executors.newFixedThreadPool(2);
+
+        // One call occupies the only worker, the next fills the queue
+        Future<String> running = callers.submit(() -> encoder.encode("a"));
+        assertTrue(blocking.started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = callers.submit(() -> encoder.encode("b"));
+        waitForQueuedTask();
+
+        PasswordHashingBusyException ex = assertThrows(PasswordHashingBusyException.class,
+                () -> encoder.encode("c"));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+        assertEquals("3", ex.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        blocking.release.countDown();
+        assertEquals("hashed:a", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hashed:b", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRejectsWhenHashingTakesLongerThanMaxWait() {
+        BlockingEncoder blocking = new BlockingEncoder();
+        encoder = new BoundedPasswordEncoder(blocking, 1, 1, 50, 1);
+
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("slow"));
+        blocking.release.countDown();
+    }
+
+    @Test
+    void testDelegateExceptionsPropagateUnchanged() {
+        PasswordEncoder failing = new BlockingEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                throw new IllegalArgumentException("bad input");
+            }
+        };
+        encoder = new BoundedPasswordEncoder(failing, 1, 1, 5000, 1);
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> encoder.encode("x"));
+        assertEquals("bad input", ex.getMessage());
+    }
+
+    @Test
+    void testRejectsNonPositivePoolBounds() {
+        PasswordEncoder delegate = new BCryptPasswordEncoder(4);
+        assertThrows(IllegalArgumentException.class, () -> new BoundedPasswordEncoder(delegate, 0, 1, 1000, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedPasswordEncoder(delegate, 1, 0, 1000, 1));
+    }
+
+    private void waitForQueuedTask() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (encoder.queueDepth() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, encoder.queueDepth());
+    }
+
+    private static class BlockingEncoder implements PasswordEncoder {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    }
+}
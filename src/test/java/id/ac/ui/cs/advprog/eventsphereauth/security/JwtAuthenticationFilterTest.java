@@ -1,5 +1,7 @@
 package id.ac.ui.cs.advprog.eventsphereauth.security;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,6 +9,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -16,9 +19,13 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
+import java.util.Date;
+import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +36,8 @@ class JwtAuthenticationFilterTest {
     @Mock
     private UserDetailsService userDetailsService;
     @Mock
+    private TokenRevocationService tokenRevocationService;
+    @Mock
     private HttpServletRequest request;
     @Mock
     private HttpServletResponse response;
@@ -74,12 +83,13 @@ class JwtAuthenticationFilterTest {
         String jwt = "valid.jwt.token";
         String userEmail = "test@example.com";
         when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
-        when(jwtService.extractUsername(jwt)).thenReturn(userEmail);
+        VerifiedToken token = new VerifiedToken(userEmail, null, null, null, null, null);
+        when(jwtService.verifyToken(jwt)).thenReturn(token);
 
         when(securityContext.getAuthentication()).thenReturn(null);
 
         when(userDetailsService.loadUserByUsername(userEmail)).thenReturn(userDetails);
-        when(jwtService.isTokenValid(jwt, userDetails)).thenReturn(true);
+        when(jwtService.isTokenValid(token, userDetails)).thenReturn(true);
 
         when(userDetails.getAuthorities()).thenReturn(java.util.Collections.emptyList());
 
@@ -87,10 +97,10 @@ class JwtAuthenticationFilterTest {
 
         verify(filterChain, times(1)).doFilter(request, response);
         verify(request, times(1)).getHeader("Authorization");
-        verify(jwtService, times(1)).extractUsername(jwt);
+        verify(jwtService, times(1)).verifyToken(jwt);
         verify(securityContext, times(1)).getAuthentication();
         verify(userDetailsService, times(1)).loadUserByUsername(userEmail);
-        verify(jwtService, times(1)).isTokenValid(jwt, userDetails);
+        verify(jwtService, times(1)).isTokenValid(token, userDetails);
 
         verify(securityContext, times(1)).setAuthentication(any(UsernamePasswordAuthenticationToken.class));
     }
@@ -100,21 +110,22 @@ class JwtAuthenticationFilterTest {
         String jwt = "invalid.jwt.token";
         String userEmail = "test@example.com";
         when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
-        when(jwtService.extractUsername(jwt)).thenReturn(userEmail);
+        VerifiedToken token = new VerifiedToken(userEmail, null, null, null, null, null);
+        when(jwtService.verifyToken(jwt)).thenReturn(token);
 
         when(securityContext.getAuthentication()).thenReturn(null);
 
         when(userDetailsService.loadUserByUsername(userEmail)).thenReturn(userDetails);
-        when(jwtService.isTokenValid(jwt, userDetails)).thenReturn(false);
+        when(jwtService.isTokenValid(token, userDetails)).thenReturn(false);
 
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         verify(filterChain, times(1)).doFilter(request, response);
         verify(request, times(1)).getHeader("Authorization");
-        verify(jwtService, times(1)).extractUsername(jwt);
+        verify(jwtService, times(1)).verifyToken(jwt);
         verify(securityContext, times(1)).getAuthentication();
         verify(userDetailsService, times(1)).loadUserByUsername(userEmail);
-        verify(jwtService, times(1)).isTokenValid(jwt, userDetails);
+        verify(jwtService, times(1)).isTokenValid(token, userDetails);
 
         verify(securityContext, never()).setAuthentication(any(UsernamePasswordAuthenticationToken.class));
     }
@@ -123,13 +134,128 @@ class JwtAuthenticationFilterTest {
     void testDoFilterInternalJwtWithNullUsername() throws ServletException, IOException {
         String jwt = "token.with.no.username";
         when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
-        when(jwtService.extractUsername(jwt)).thenReturn(null);
+        when(jwtService.verifyToken(jwt)).thenReturn(new VerifiedToken(null, null, null, null, null, null));
 
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         verify(filterChain, times(1)).doFilter(request, response);
         verify(request, times(1)).getHeader("Authorization");
-        verify(jwtService, times(1)).extractUsername(jwt);
+        verify(jwtService, times(1)).verifyToken(jwt);
         verifyNoMoreInteractions(jwtService, userDetailsService, securityContext);
     }
+
+    @Test
+    void testDoFilterInternalStatelessBuildsAuthenticationFromClaims() throws ServletException, IOException {
+        ReflectionTestUtils.setField(jwtAuthenticationFilter, "statelessEnabled", true);
+        String jwt = "stateless.jwt.token";
+        UUID userId = UUID.randomUUID();
+        VerifiedToken token = new VerifiedToken("test@example.com", new Date(), new Date(System.currentTimeMillis() + 60_000),
+                "ROLE_USER", userId.toString(), null);
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
+        when(jwtService.verifyToken(jwt)).thenReturn(token);
+        when(securityContext.getAuthentication()).thenReturn(null);
+
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        ArgumentCaptor<UsernamePasswordAuthenticationToken> captor = ArgumentCaptor.forClass(UsernamePasswordAuthenticationToken.class);
+        verify(securityContext).setAuthentication(captor.capture());
+        assertEquals("test@example.com", captor.getValue().getName());
+        assertEquals(new JwtPrincipal(userId, "test@example.com", "ROLE_USER"), captor.getValue().getPrincipal());
+        assertTrue(captor.getValue().getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+        verifyNoInteractions(userDetailsService);
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void testDoFilterInternalStatelessRejectsTokenIssuedBeforeCutoff() throws ServletException, IOException {
+        ReflectionTestUtils.setField(jwtAuthenticationFilter, "statelessEnabled", true);
+        ReflectionTestUtils.setField(jwtAuthenticationFilter, "issuedAfter", System.currentTimeMillis());
+        String jwt = "revoked.jwt.token";
+        VerifiedToken token = new VerifiedToken("test@example.com", new Date(System.currentTimeMillis() - 60_000),
+                new Date(System.currentTimeMillis() + 60_000), "ROLE_USER", UUID.randomUUID().toString(), null);
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
+        when(jwtService.verifyToken(jwt)).thenReturn(token);
+        when(securityContext.getAuthentication()).thenReturn(null);
+
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        verify(securityContext, never()).setAuthentication(any());
+        verifyNoInteractions(userDetailsService);
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void testDoFilterInternalStatelessFallsBackToLookupWithoutIdentityClaims() throws ServletException, IOException {
+        ReflectionTestUtils.setField(jwtAuthenticationFilter, "statelessEnabled", true);
+        String jwt = "legacy.jwt.token";
+        VerifiedToken token = new VerifiedToken("test@example.com", new Date(), new Date(System.currentTimeMillis() + 60_000),
+                null, null, null);
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
+        when(jwtService.verifyToken(jwt)).thenReturn(token);
+        when(securityContext.getAuthentication()).thenReturn(null);
+        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(userDetails);
+        when(jwtService.isTokenValid(token, userDetails)).thenReturn(true);
+
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        verify(userDetailsService).loadUserByUsername("test@example.com");
+        verify(securityContext).setAuthentication(any(UsernamePasswordAuthenticationToken.class));
+    }
+
+    @Test
+    void testDoFilterInternalRecordsModeOutcomeAndRole() throws ServletException, IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            ReflectionTestUtils.setField(jwtAuthenticationFilter, "statelessEnabled", true);
+            VerifiedToken token = new VerifiedToken("test@example.com", new Date(), new Date(System.currentTimeMillis() + 60_000),
+                    "ROLE_ORGANIZER", UUID.randomUUID().toString(), null);
+            when(request.getHeader("Authorization")).thenReturn("Bearer stateless.jwt.token");
+            when(jwtService.verifyToken("stateless.jwt.token")).thenReturn(token);
+            when(securityContext.getAuthentication()).thenReturn(null);
+
+            jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+            assertEquals(1, registry.get("auth.request.filter")
+                    .tags("mode", "stateless", "outcome", "authenticated", "role", "ROLE_ORGANIZER")
+                    .timer().count());
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+
+    @Test
+    void testDoFilterInternalRecordsInvalidTokenAndRethrows() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            when(request.getHeader("Authorization")).thenReturn("Bearer tampered.jwt.token");
+            when(jwtService.verifyToken("tampered.jwt.token")).thenThrow(new io.jsonwebtoken.MalformedJwtException("bad"));
+
+            assertThrows(io.jsonwebtoken.MalformedJwtException.class,
+                    () -> jwtAuthenticationFilter.doFilterInternal(request, response, filterChain));
+
+            assertEquals(1, registry.get("auth.request.filter")
+                    .tags("mode", "none", "outcome", "invalid", "role", "none")
+                    .timer().count());
+            verifyNoInteractions(filterChain);
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+
+    @Test
+    void testRevokedTokenIsNotAuthenticated() throws ServletException, IOException {
+        String jwt = "revoked.jwt.token";
+        VerifiedToken token = new VerifiedToken("test@example.com", new Date(), new Date(System.currentTimeMillis() + 60_000),
+                "ROLE_USER", UUID.randomUUID().toString(), "jti");
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
+        when(jwtService.verifyToken(jwt)).thenReturn(token);
+        when(tokenRevocationService.isRevoked(token)).thenReturn(true);
+
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        verifyNoInteractions(userDetailsService, securityContext);
+        verify(filterChain).doFilter(request, response);
+    }
 }
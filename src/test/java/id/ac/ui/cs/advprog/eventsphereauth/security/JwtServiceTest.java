@@ -3,13 +3,17 @@ package id.ac.ui.cs.advprog.eventsphereauth.security;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
 import id.ac.ui.cs.advprog.eventsphereauth.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -17,9 +21,17 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.RSAPublicKeySpec;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.Calendar;
@@ -48,7 +60,7 @@ class JwtServiceTest {
         ReflectionTestUtils.setField(jwtService, "jwtExpiration", EXPIRATION_TIME_MS);
 
         userDetails = mock(UserDetails.class);
-        when(userDetails.getUsername()).thenReturn(testEmail);
+        lenient().when(userDetails.getUsername()).thenReturn(testEmail);
     }
 
     private Claims extractAllClaims(String token) {
@@ -145,4 +157,211 @@ class JwtServiceTest {
         boolean isExpired = jwtService.isTokenExpired(token);
         assertFalse(isExpired);
     }
+
+    @Test
+    void testVerifyTokenReturnsAllClaimsFromSingleParse() {
+        User user = new User("tester", testEmail, "08123", "password");
+        user.setId(java.util.UUID.randomUUID());
+        user.setRole(Role.USER);
+
+        String token = jwtService.generateToken(user);
+        VerifiedToken verified = jwtService.verifyToken(token);
+
+        assertEquals(testEmail, verified.subject());
+        assertEquals(user.getId().toString(), verified.userId());
+        assertEquals("ROLE_USER", verified.role());
+        assertNotNull(verified.issuedAt());
+        assertTrue(verified.expiration().after(new Date()));
+        assertFalse(verified.isExpired());
+        assertTrue(jwtService.isTokenValid(verified, user));
+    }
+
+    @Test
+    void testSigningKeyIsBuiltOnceAndReused() {
+        Key first = jwtService.getSigningKey();
+        jwtService.generateToken(userDetails);
+
+        assertSame(first, jwtService.getSigningKey());
+    }
+
+    @Test
+    void testRotateSecretKeyKeepsOldTokensValidUntilRetiredKeyExpires() {
+        ReflectionTestUtils.setField(jwtService, "retiredKeyTtlMs", 200L);
+        String oldToken = jwtService.generateToken(userDetails);
+        Key oldKey = jwtService.getSigningKey();
+
+        Key newKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        jwtService.rotateSecretKey(Base64.getEncoder().encodeToString(newKey.getEncoded()));
+        String newToken = jwtService.generateToken(userDetails);
+
+        assertNotSame(oldKey, jwtService.getSigningKey());
+        assertNotEquals(kid(oldToken), kid(newToken));
+        assertTrue(jwtService.isTokenValid(oldToken, userDetails));
+        assertTrue(jwtService.isTokenValid(newToken, userDetails));
+
+        sleep(250);
+
+        assertThrows(io.jsonwebtoken.UnsupportedJwtException.class, () -> jwtService.verifyToken(oldToken));
+        assertTrue(jwtService.isTokenValid(newToken, userDetails));
+    }
+
+    @Test
+    void testTokenWithoutKidVerifiesAgainstOriginalSecretAfterRotation() {
+        String legacy = Jwts.builder().setSubject(testEmail)
+                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME_MS))
+                .signWith(signingKey, SignatureAlgorithm.HS256).compact();
+
+        jwtService.rotateSecretKey(Base64.getEncoder().encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded()));
+
+        assertTrue(jwtService.isTokenValid(legacy, userDetails));
+    }
+
+    @Test
+    void testReloadKeysPicksUpRotatedSecretFile(@TempDir Path dir) throws Exception {
+        Path secretFile = Files.writeString(dir.resolve("jwt.key"), Base64.getEncoder().encodeToString(signingKey.getEncoded()));
+        ReflectionTestUtils.setField(jwtService, "secretKeyLocation", secretFile.toUri().toString());
+        ReflectionTestUtils.setField(jwtService, "tokenCacheMaxBytes", 1_048_576L);
+        String oldToken = jwtService.generateToken(userDetails);
+        VerifiedToken cached = jwtService.verifyToken(oldToken);
+
+        jwtService.reloadKeys();
+        assertSame(cached, jwtService.verifyToken(oldToken));
+
+        Key newKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        Files.writeString(secretFile, Base64.getEncoder().encodeToString(newKey.getEncoded()) + "\n");
+        jwtService.reloadKeys();
+        String newToken = jwtService.generateToken(userDetails);
+
+        assertArrayEquals(newKey.getEncoded(), jwtService.getSigningKey().getEncoded());
+        assertSame(cached, jwtService.verifyToken(oldToken));
+        assertTrue(jwtService.isTokenValid(newToken, userDetails));
+    }
+
+    @Test
+    void testReloadKeysLeavesRingInPlaceWhenKeyFileIsUnreadable(@TempDir Path dir) throws Exception {
+        Path secretFile = Files.writeString(dir.resolve("jwt.key"), Base64.getEncoder().encodeToString(signingKey.getEncoded()));
+        ReflectionTestUtils.setField(jwtService, "secretKeyLocation", secretFile.toUri().toString());
+        String token = jwtService.generateToken(userDetails);
+
+        Files.writeString(secretFile, "c2hvcnQ=");
+
+        assertThrows(io.jsonwebtoken.security.WeakKeyException.class, () -> jwtService.reloadKeys());
+        assertTrue(jwtService.isTokenValid(token, userDetails));
+        assertArrayEquals(signingKey.getEncoded(), jwtService.getSigningKey().getEncoded());
+    }
+
+    @Test
+    void testRotateSecretKeyRejectsInvalidSecretAndKeepsCurrentKey() {
+        Key current = jwtService.getSigningKey();
+
+        assertThrows(io.jsonwebtoken.security.WeakKeyException.class, () -> jwtService.rotateSecretKey("c2hvcnQ="));
+        assertSame(current, jwtService.getSigningKey());
+    }
+
+    @Test
+    void testVerifyTokenServesRepeatValidationFromTokenCache() {
+        ReflectionTestUtils.setField(jwtService, "tokenCacheMaxBytes", 1_048_576L);
+        jwtService.rotateSecretKey(Base64.getEncoder().encodeToString(signingKey.getEncoded()));
+        String token = jwtService.generateToken(userDetails);
+
+        VerifiedToken first = jwtService.verifyToken(token);
+        VerifiedToken second = jwtService.verifyToken(token);
+
+        assertSame(first, second);
+        assertEquals(testEmail, second.subject());
+    }
+
+    @Test
+    void testVerifyTokenRecordsCachedVerifiedAndInvalidOutcomes() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            ReflectionTestUtils.setField(jwtService, "tokenCacheMaxBytes", 1_048_576L);
+            jwtService.rotateSecretKey(Base64.getEncoder().encodeToString(signingKey.getEncoded()));
+            String token = jwtService.generateToken(userDetails);
+
+            jwtService.verifyToken(token);
+            jwtService.verifyToken(token);
+            assertThrows(io.jsonwebtoken.JwtException.class, () -> jwtService.verifyToken(token + "x"));
+
+            assertEquals(1, registry.get("auth.jwt").tags("operation", "sign", "outcome", "success").timer().count());
+            assertEquals(1, registry.get("auth.jwt").tags("operation", "verify", "outcome", "verified").timer().count());
+            assertEquals(1, registry.get("auth.jwt").tags("operation", "verify", "outcome", "cached").timer().count());
+            assertEquals(1, registry.get("auth.jwt").tags("operation", "verify", "outcome", "invalid").timer().count());
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+
+    @Test
+    void testRs256TokenCarriesKidAndVerifiesWithPublishedJwkAlone() throws Exception {
+        RSAPrivateCrtKey rsa = JwtKeyRingTest.generate(2048);
+        jwtService.rotateKeys(List.of(JwtKeyRing.SigningKey.rsa("k1", rsa)));
+
+        String token = jwtService.generateToken(userDetails);
+
+        // What a downstream service does: rebuild the key from the JWKS entry and verify locally
+        Map<String, Object> jwk = jwtService.jwkSet().keys().get(0);
+        PublicKey publicKey = KeyFactory.getInstance("RSA").generatePublic(
+                new RSAPublicKeySpec(
+                        new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("n"))),
+                        new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("e")))));
+        Jws<Claims> jws = Jwts.parserBuilder().setSigningKey(publicKey).build().parseClaimsJws(token);
+
+        assertEquals("k1", jws.getHeader().getKeyId());
+        assertEquals("RS256", jws.getHeader().getAlgorithm());
+        assertEquals(testEmail, jws.getBody().getSubject());
+        assertTrue(jwtService.isTokenValid(token, userDetails));
+    }
+
+    @Test
+    void testHs256TokensIssuedBeforeSwitchStayValidWhileSecretIsKept() throws Exception {
+        String hsToken = jwtService.generateToken(userDetails);
+
+        jwtService.rotateKeys(List.of(JwtKeyRing.SigningKey.rsa("k1", JwtKeyRingTest.generate(2048))));
+
+        assertTrue(jwtService.isTokenValid(hsToken, userDetails));
+    }
+
+    @Test
+    void testRejectsUnknownKidAndHmacTokenNamingAnRsaKid() throws Exception {
+        jwtService.rotateKeys(List.of(JwtKeyRing.SigningKey.rsa("k1", JwtKeyRingTest.generate(2048))));
+        String foreign = Jwts.builder().setSubject(testEmail).setHeaderParam("kid", "other")
+                .signWith(JwtKeyRingTest.generate(2048), SignatureAlgorithm.RS256).compact();
+        String confused = Jwts.builder().setSubject(testEmail).setHeaderParam("kid", "k1")
+                .signWith(signingKey, SignatureAlgorithm.HS256).compact();
+
+        assertThrows(io.jsonwebtoken.UnsupportedJwtException.class, () -> jwtService.verifyToken(foreign));
+        assertThrows(io.jsonwebtoken.JwtException.class, () -> jwtService.verifyToken(confused));
+    }
+
+    @Test
+    void testRetiredRsaKeyStaysPublishedAndVerifiesAfterRotation() throws Exception {
+        jwtService.rotateKeys(List.of(JwtKeyRing.SigningKey.rsa("k1", JwtKeyRingTest.generate(2048))));
+        String k1Token = jwtService.generateToken(userDetails);
+
+        jwtService.rotateKeys(List.of(JwtKeyRing.SigningKey.rsa("k2", JwtKeyRingTest.generate(2048))));
+
+        assertEquals("k2", kid(jwtService.generateToken(userDetails)));
+        assertTrue(jwtService.isTokenValid(k1Token, userDetails));
+        assertEquals(List.of("k2", "k1"), jwtService.jwkSet().keys().stream().map(jwk -> jwk.get("kid")).toList());
+    }
+
+    @Test
+    void testJwkSetIsEmptyInHs256Mode() {
+        assertEquals(List.of(), jwtService.jwkSet().keys());
+    }
+
+    private static String kid(String token) {
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+        return header.replaceAll(".*\"kid\":\"([^\"]+)\".*", "$1");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityContextPropagationConfigTest {
+
+    private final TaskDecorator decorator = new SecurityContextPropagationConfig().securityContextTaskDecorator();
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testDecoratedTaskSeesSubmittersAuthenticationOnVirtualThread() throws InterruptedException {
+        Authentication auth = new UsernamePasswordAuthenticationToken("admin@example.com", null, List.of());
+        SecurityContextHolder.setContext(new SecurityContextImpl(auth));
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        AtomicReference<Authentication> afterTask = new AtomicReference<>();
+
+        Runnable task = decorator.decorate(() -> seen.set(SecurityContextHolder.getContext().getAuthentication()));
+        Thread.ofVirtual().start(() -> {
+            task.run();
+            afterTask.set(SecurityContextHolder.getContext().getAuthentication());
+        }).join();
+
+        assertSame(auth, seen.get());
+        assertNull(afterTask.get());
+    }
+
+    @Test
+    void testContextIsCapturedAtSubmissionNotAtExecution() throws InterruptedException {
+        Authentication submitter = new UsernamePasswordAuthenticationToken("a@example.com", null, List.of());
+        SecurityContextHolder.setContext(new SecurityContextImpl(submitter));
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+
+        Runnable task = decorator.decorate(() -> seen.set(SecurityContextHolder.getContext().getAuthentication()));
+        SecurityContextHolder.clearContext();
+        Thread.ofVirtual().start(task).join();
+
+        assertSame(submitter, seen.get());
+    }
+}
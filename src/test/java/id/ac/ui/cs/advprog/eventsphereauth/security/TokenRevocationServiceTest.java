@@ -0,0 +1,119 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.RevokedToken;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    private static final long LIFETIME_MS = TimeUnit.MINUTES.toMillis(15);
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationService revocationService;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        revocationService = new TokenRevocationService(revokedTokenRepository, 1_000, 0.01, LIFETIME_MS);
+        userId = UUID.randomUUID();
+    }
+
+    private VerifiedToken token(String jti, long issuedAt) {
+        return new VerifiedToken("test@example.com", new Date(issuedAt), new Date(issuedAt + LIFETIME_MS),
+                "ROLE_USER", userId.toString(), jti);
+    }
+
+    @Test
+    void testRevokedJtiIsRejectedAndOthersPass() {
+        VerifiedToken revoked = token("jti-1", System.currentTimeMillis());
+        VerifiedToken other = token("jti-2", System.currentTimeMillis());
+
+        revocationService.revoke(revoked);
+
+        assertTrue(revocationService.isRevoked(revoked));
+        assertFalse(revocationService.isRevoked(other));
+        verify(revokedTokenRepository).save(argThat(entry -> entry.getId().equals("jti:jti-1")
+                && entry.getExpiresAt().equals(revoked.expiration().toInstant())));
+    }
+
+    @Test
+    void testUserEpochRevokesEarlierTokensOnly() {
+        VerifiedToken before = token("a", System.currentTimeMillis() - 60_000);
+        VerifiedToken noJti = token(null, System.currentTimeMillis() - 60_000);
+
+        revocationService.revokeUser(userId);
+        VerifiedToken after = token("b", System.currentTimeMillis() + 2_000);
+
+        assertTrue(revocationService.isRevoked(before));
+        assertTrue(revocationService.isRevoked(noJti));
+        assertFalse(revocationService.isRevoked(after));
+        verify(revokedTokenRepository).save(argThat(entry -> entry.getId().equals("user:" + userId)));
+    }
+
+    @Test
+    void testTokenWithoutJtiCannotBeRevokedIndividually() {
+        assertThrows(IllegalArgumentException.class, () -> revocationService.revoke(token(null, System.currentTimeMillis())));
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+    @Test
+    void testSyncPicksUpRevocationsFromOtherInstances() {
+        VerifiedToken token = token("remote", System.currentTimeMillis());
+        when(revokedTokenRepository.findByRevokedAtGreaterThanEqual(any())).thenReturn(List.of(
+                new RevokedToken("jti:remote", Instant.now(), Instant.now().plusMillis(LIFETIME_MS))));
+
+        assertFalse(revocationService.isRevoked(token));
+        revocationService.sync();
+
+        assertTrue(revocationService.isRevoked(token));
+    }
+
+    @Test
+    void testPruneDeletesExpiredRowsAndRebuildsFromTheRest() {
+        revocationService.revoke(token("gone", System.currentTimeMillis()));
+        when(revokedTokenRepository.findByExpiresAtAfter(any())).thenReturn(List.of(
+                new RevokedToken("jti:kept", Instant.now(), Instant.now().plusMillis(LIFETIME_MS))));
+
+        revocationService.prune();
+
+        verify(revokedTokenRepository).deleteExpired(any());
+        assertEquals(1, revocationService.size());
+        assertFalse(revocationService.isRevoked(token("gone", System.currentTimeMillis())));
+        assertTrue(revocationService.isRevoked(token("kept", System.currentTimeMillis())));
+    }
+
+    @Test
+    void testPublishesCheckCountersAndDenylistSize() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            // The size gauge is registered once the container has initialised the service
+            revocationService.init();
+            for (String result : List.of("clear", "false_positive", "revoked")) {
+                assertNotNull(registry.find("auth.revocation.checks").tag("result", result).functionCounter());
+            }
+            assertNotNull(registry.find("auth.revocation.entries").gauge());
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+}
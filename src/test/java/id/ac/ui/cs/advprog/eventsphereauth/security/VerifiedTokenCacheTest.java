@@ -0,0 +1,92 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VerifiedTokenCache(4096, 60_000, Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+    }
+
+    private VerifiedToken tokenExpiringAt(long expiresAt) {
+        return new VerifiedToken("test@example.com", new Date(NOW), new Date(expiresAt), "ROLE_USER", "id", "jti");
+    }
+
+    @Test
+    void testPutThenGetReturnsSameClaims() {
+        VerifiedToken verified = tokenExpiringAt(NOW + 30_000);
+        cache.put("header.payload.signature", verified);
+
+        assertSame(verified, cache.get("header.payload.signature"));
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    void testDifferentTokenMisses() {
+        cache.put("header.payload.signature", tokenExpiringAt(NOW + 30_000));
+
+        assertNull(cache.get("header.payload.other"));
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void testEntryNeverOutlivesTokenExpiry() {
+        VerifiedTokenCache later = new VerifiedTokenCache(4096, 60_000,
+                Clock.fixed(Instant.ofEpochMilli(NOW + 10_001), ZoneOffset.UTC));
+        VerifiedTokenCache now = new VerifiedTokenCache(4096, 60_000,
+                Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+        now.put("token", tokenExpiringAt(NOW + 10_000));
+        assertNotNull(now.get("token"));
+
+        later.put("token", tokenExpiringAt(NOW + 10_000));
+        assertNull(later.get("token"));
+        assertEquals(0, later.size());
+    }
+
+    @Test
+    void testWeightStaysWithinMemoryBudget() {
+        for (int i = 0; i < 100; i++) {
+            cache.put("token-" + i, tokenExpiringAt(NOW + 30_000));
+        }
+
+        assertTrue(cache.weightBytes() <= 4096);
+        assertTrue(cache.size() < 100);
+        assertTrue(cache.evictionCount() > 0);
+    }
+
+    @Test
+    void testEvictionDropsToLowWaterMark() {
+        int i = 0;
+        while (cache.evictionCount() == 0) {
+            cache.put("token-" + i++, tokenExpiringAt(NOW + 30_000));
+        }
+        assertTrue(cache.weightBytes() <= 4096 * 3 / 4);
+
+        // The headroom absorbs the next put without another scan
+        long evicted = cache.evictionCount();
+        cache.put("token-" + i, tokenExpiringAt(NOW + 30_000));
+        assertEquals(evicted, cache.evictionCount());
+    }
+
+    @Test
+    void testInvalidateAllResetsWeight() {
+        cache.put("token", tokenExpiringAt(NOW + 30_000));
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightBytes());
+    }
+}
@@ -0,0 +1,98 @@
+package id.ac.ui.cs.advprog.eventsphereauth.security;
+
+import id.ac.ui.cs.advprog.eventsphereauth.cache.BoundedTtlCache;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The shared components on the request path must block through j.u.c. locks and
+ * futures, never while holding a monitor, or virtual request threads pin their
+ * carrier. JFR reports every park that happens while pinned.
+ */
+class VirtualThreadPinningTest {
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+
+    @Test
+    void testDetectorReportsParkingInsideSynchronized() throws Exception {
+        Object monitor = new Object();
+
+        List<RecordedEvent> pinned = recordPinning(() -> {
+            synchronized (monitor) {
+                sleep(20);
+            }
+        });
+
+        assertFalse(pinned.isEmpty());
+    }
+
+    @Test
+    void testBoundedPasswordEncoderDoesNotPinCallers() throws Exception {
+        PasswordEncoder slow = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                sleep(10);
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                sleep(10);
+                return true;
+            }
+        };
+
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slow, 2, 256, 10_000, 1)) {
+            List<RecordedEvent> pinned = recordPinning(() -> encoder.matches("password", "hash"));
+
+            assertEquals(List.of(), pinned);
+        }
+    }
+
+    @Test
+    void testBoundedTtlCacheDoesNotPinCallers() throws Exception {
+        BoundedTtlCache<Integer, String> cache = new BoundedTtlCache<>(16, 60_000);
+
+        List<RecordedEvent> pinned = recordPinning(() -> cache.get((int) (Thread.currentThread().threadId() % 32), key -> {
+            sleep(5);
+            return "v" + key;
+        }));
+
+        assertEquals(List.of(), pinned);
+    }
+
+    private static List<RecordedEvent> recordPinning(Runnable work) throws Exception {
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream stream = new RecordingStream()) {
+            stream.enable(PINNED).withThreshold(Duration.ZERO).withStackTrace();
+            stream.onEvent(PINNED, pinned::add);
+            stream.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 64; i++) {
+                    executor.submit(work);
+                }
+            }
+            stream.stop();
+        }
+        return pinned;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -5,16 +5,20 @@ import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
 import id.ac.ui.cs.advprog.eventsphereauth.model.User;
 import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.security.TokenRevocationService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.UserDetailsCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -28,8 +32,14 @@ class AdminServiceImplTest {
     @Mock
     private UserRepository userRepository;
     @Mock
+    private UserDetailsCache userDetailsCache;
+    @Mock
     private PasswordEncoder passwordEncoder;
     @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+    @Mock
     private SecurityContext securityContext;
     @Mock
     private Authentication authentication;
@@ -89,7 +99,7 @@ class AdminServiceImplTest {
         newUser.setRole(registerRequestOrganizer.getRole());
 
         when(passwordEncoder.encode(registerRequestOrganizer.getPassword())).thenReturn("encodedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(newUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(newUser);
 
         UserResponse userResponse = adminService.createAdminOrOrganizer(registerRequestOrganizer);
 
@@ -102,7 +112,8 @@ class AdminServiceImplTest {
         verify(authentication, times(1)).getName();
         verify(userRepository, times(1)).findByEmail("admin@example.com");
         verify(passwordEncoder, times(1)).encode(registerRequestOrganizer.getPassword());
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verify(userDetailsCache, times(1)).invalidate("organizer@example.com");
     }
 
     @Test
@@ -128,7 +139,7 @@ class AdminServiceImplTest {
         newUser.setRole(registerRequestAdmin.getRole());
 
         when(passwordEncoder.encode(registerRequestAdmin.getPassword())).thenReturn("encodedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(newUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(newUser);
 
         UserResponse userResponse = adminService.createAdminOrOrganizer(registerRequestAdmin);
 
@@ -141,7 +152,7 @@ class AdminServiceImplTest {
         verify(authentication, times(1)).getName();
         verify(userRepository, times(1)).findByEmail("admin@example.com");
         verify(passwordEncoder, times(1)).encode(registerRequestAdmin.getPassword());
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
     }
 
     @Test
@@ -208,4 +219,26 @@ class AdminServiceImplTest {
         verify(userRepository, times(1)).findByEmail("nonexistent@example.com");
         verifyNoMoreInteractions(passwordEncoder, userRepository);
     }
+
+    @Test
+    void testRevokeSessionsRevokesRefreshFamiliesAndAccessTokens() {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        adminService.revokeSessions(userId);
+
+        verify(refreshTokenService).revokeAll(userId);
+        verify(tokenRevocationService).revokeUser(userId);
+    }
+
+    @Test
+    void testRevokeSessionsForUnknownUserIsNotFound() {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.existsById(userId)).thenReturn(false);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> adminService.revokeSessions(userId));
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+        verifyNoInteractions(refreshTokenService, tokenRevocationService);
+    }
 }
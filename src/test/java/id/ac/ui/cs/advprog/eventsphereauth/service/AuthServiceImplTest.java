@@ -2,24 +2,37 @@ package id.ac.ui.cs.advprog.eventsphereauth.service;
 
 import id.ac.ui.cs.advprog.eventsphereauth.dto.AuthResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.LoginRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.RefreshRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.RegisterRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
 import id.ac.ui.cs.advprog.eventsphereauth.model.User;
 import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserWithBalance;
 import id.ac.ui.cs.advprog.eventsphereauth.security.JwtService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.TokenRevocationService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.VerifiedToken;
+import io.jsonwebtoken.MalformedJwtException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
+import java.util.Date;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -39,6 +52,12 @@ class AuthServiceImplTest {
     private AuthenticationManager authenticationManager;
     @Mock
     private UserService userService;
+    @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private AuthServiceImpl authService;
@@ -85,28 +104,46 @@ class AuthServiceImplTest {
 
     @Test
     void testRegisterSuccess() {
-        when(userRepository.existsByEmail(registerRequest.getEmail())).thenReturn(false);
         when(passwordEncoder.encode(registerRequest.getPassword())).thenReturn("encodedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
         when(jwtService.generateToken(user)).thenReturn("mockedToken");
+        when(refreshTokenService.issue(userId)).thenReturn("mockedRefreshToken");
         when(userService.mapToUserResponse(user)).thenReturn(userResponse);
 
         AuthResponse authResponse = authService.register(registerRequest);
 
         assertNotNull(authResponse);
         assertEquals("mockedToken", authResponse.getToken());
+        assertEquals("mockedRefreshToken", authResponse.getRefreshToken());
         assertEquals(userResponse, authResponse.getUser());
 
-        verify(userRepository, times(1)).existsByEmail(registerRequest.getEmail());
+        verify(userRepository, never()).existsByEmail(any());
         verify(passwordEncoder, times(1)).encode(registerRequest.getPassword());
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
         verify(jwtService, times(1)).generateToken(user);
         verify(userService, times(1)).mapToUserResponse(user);
     }
 
+    @Test
+    void testRegisterHashesBeforeOpeningTransaction() {
+        when(passwordEncoder.encode(registerRequest.getPassword())).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+
+        authService.register(registerRequest);
+
+        InOrder order = inOrder(passwordEncoder, transactionManager, userRepository, refreshTokenService);
+        order.verify(passwordEncoder).encode(registerRequest.getPassword());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(userRepository).saveAndFlush(any(User.class));
+        order.verify(refreshTokenService).issue(userId);
+        order.verify(transactionManager).commit(any());
+    }
+
     @Test
     void testRegisterEmailExists() {
-        when(userRepository.existsByEmail(registerRequest.getEmail())).thenReturn(true);
+        when(passwordEncoder.encode(registerRequest.getPassword())).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate key", null, ConstraintViolationException.ConstraintKind.UNIQUE, "users_email_key")));
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             authService.register(registerRequest);
@@ -114,28 +151,66 @@ class AuthServiceImplTest {
 
         assertEquals("Email already exists", exception.getMessage());
 
-        verify(userRepository, times(1)).existsByEmail(registerRequest.getEmail());
-        verifyNoMoreInteractions(passwordEncoder, userRepository, jwtService, userService);
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verifyNoMoreInteractions(userRepository, jwtService, userService, refreshTokenService);
+    }
+
+    @Test
+    void testRegisterOtherIntegrityViolationIsNotReportedAsDuplicate() {
+        when(passwordEncoder.encode(registerRequest.getPassword())).thenReturn("encodedPassword");
+        DataIntegrityViolationException notNull = new DataIntegrityViolationException("null phone",
+                new ConstraintViolationException("null value", null, ConstraintViolationException.ConstraintKind.OTHER, "phone_number"));
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(notNull);
+
+        assertSame(notNull, assertThrows(DataIntegrityViolationException.class,
+                () -> authService.register(registerRequest)));
+    }
+
+    @Test
+    void testRegisterNormalisesEmail() {
+        registerRequest.setEmail("  Test@Example.COM ");
+        when(passwordEncoder.encode(registerRequest.getPassword())).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        authService.register(registerRequest);
+
+        verify(userRepository).saveAndFlush(argThat(saved -> "test@example.com".equals(saved.getEmail())));
     }
 
     @Test
     void testLoginSuccess() {
         Authentication authentication = mock(Authentication.class);
+        when(authentication.getPrincipal()).thenReturn(user);
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class))).thenReturn(authentication);
-        when(userRepository.findByEmail(loginRequest.getEmail())).thenReturn(Optional.of(user));
         when(jwtService.generateToken(user)).thenReturn("mockedToken");
+        when(refreshTokenService.issue(userId)).thenReturn("mockedRefreshToken");
         when(userService.mapToUserResponse(user)).thenReturn(userResponse);
 
         AuthResponse authResponse = authService.login(loginRequest);
 
         assertNotNull(authResponse);
         assertEquals("mockedToken", authResponse.getToken());
+        assertEquals("mockedRefreshToken", authResponse.getRefreshToken());
         assertEquals(userResponse, authResponse.getUser());
 
         verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(userRepository, times(1)).findByEmail(loginRequest.getEmail());
+        verify(userRepository, never()).findByEmail(any());
         verify(jwtService, times(1)).generateToken(user);
         verify(userService, times(1)).mapToUserResponse(user);
+        // Password verification must not pin a pooled connection
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void testLoginMapsThePrincipalWithoutAnotherQuery() {
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getPrincipal()).thenReturn(user);
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class))).thenReturn(authentication);
+
+        authService.login(loginRequest);
+
+        // The provider's lookup already summed the ledger; login reads nothing else
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -154,4 +229,69 @@ class AuthServiceImplTest {
         verify(userRepository, times(1)).findByEmail(loginRequest.getEmail());
         verifyNoMoreInteractions(jwtService, userService);
     }
+
+    @Test
+    void testLoginFallsBackToLookupWhenPrincipalIsNotAUser() {
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getPrincipal()).thenReturn(loginRequest.getEmail());
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class))).thenReturn(authentication);
+        when(userRepository.findByEmail(loginRequest.getEmail())).thenReturn(Optional.of(user));
+        when(jwtService.generateToken(user)).thenReturn("mockedToken");
+        when(userService.mapToUserResponse(user)).thenReturn(userResponse);
+
+        AuthResponse authResponse = authService.login(loginRequest);
+
+        assertEquals("mockedToken", authResponse.getToken());
+        verify(userRepository, times(1)).findByEmail(loginRequest.getEmail());
+    }
+
+    @Test
+    void testRefreshRotatesTokenAndSignsWithoutHashingPassword() {
+        when(refreshTokenService.rotate("old")).thenReturn(new RefreshTokenService.Rotated(userId, "new"));
+        when(userRepository.findWithBalanceById(userId)).thenReturn(Optional.of(new UserWithBalance(user, BigDecimal.TEN)));
+        when(jwtService.generateToken(user)).thenReturn("mockedToken");
+        when(userService.mapToUserResponse(user)).thenReturn(userResponse);
+
+        AuthResponse authResponse = authService.refresh(new RefreshRequest("old"));
+
+        assertEquals("mockedToken", authResponse.getToken());
+        assertEquals("new", authResponse.getRefreshToken());
+        assertEquals(userResponse, authResponse.getUser());
+        assertEquals(0, BigDecimal.TEN.compareTo(user.getCurrentBalance()));
+        verifyNoInteractions(passwordEncoder, authenticationManager);
+    }
+
+    @Test
+    void testRefreshForDeletedUserIsUnauthorized() {
+        when(refreshTokenService.rotate("old")).thenReturn(new RefreshTokenService.Rotated(userId, "new"));
+        when(userRepository.findWithBalanceById(userId)).thenReturn(Optional.empty());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> authService.refresh(new RefreshRequest("old")));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatusCode());
+        verifyNoInteractions(jwtService);
+    }
+
+    @Test
+    void testLogoutRevokesRefreshTokenAndAccessToken() {
+        VerifiedToken accessToken = new VerifiedToken("test@example.com", new Date(), new Date(), "ROLE_USER",
+                userId.toString(), "jti");
+        when(jwtService.verifyToken("access")).thenReturn(accessToken);
+
+        authService.logout(new RefreshRequest("token"), "access");
+
+        verify(refreshTokenService).revoke("token");
+        verify(tokenRevocationService).revoke(accessToken);
+    }
+
+    @Test
+    void testLogoutWithInvalidAccessTokenStillRevokesRefreshToken() {
+        when(jwtService.verifyToken("garbage")).thenThrow(new MalformedJwtException("bad"));
+
+        authService.logout(new RefreshRequest("token"), "garbage");
+
+        verify(refreshTokenService).revoke("token");
+        verifyNoInteractions(tokenRevocationService);
+    }
 }
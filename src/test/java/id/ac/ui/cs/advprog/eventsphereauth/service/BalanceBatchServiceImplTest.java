@@ -0,0 +1,157 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceBatchResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceOperation;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.BalanceOperationResult;
+import id.ac.ui.cs.advprog.eventsphereauth.model.MinorUnits;
+import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.BalanceEntryRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(BalanceBatchServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BalanceBatchServiceImplTest {
+
+    @Autowired
+    private BalanceBatchService balanceBatchService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BalanceEntryRepository balanceEntryRepository;
+
+    private User attendee;
+    private User organizer;
+
+    @BeforeEach
+    void setUp() {
+        attendee = new User("attendee", "attendee@example.com", "000", "password");
+        attendee.setRole(Role.USER);
+        attendee.setBalance(BigDecimal.valueOf(100));
+        attendee = userRepository.save(attendee);
+
+        organizer = new User("organizer", "organizer@example.com", "000", "password");
+        organizer.setRole(Role.ORGANIZER);
+        organizer = userRepository.save(organizer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        balanceEntryRepository.deleteAll();
+    }
+
+    @Test
+    void testAppliesAllValidOperations() {
+        BalanceBatchResponse response = balanceBatchService.applyBatch(List.of(
+                op(attendee.getId(), 50),
+                op(attendee.getId(), -120)
+        ));
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals(0, response.getFailed());
+        assertBalance(30);
+    }
+
+    @Test
+    void testReportsFailuresPerItemWithoutAbortingTheBatch() {
+        BalanceBatchResponse response = balanceBatchService.applyBatch(List.of(
+                op(attendee.getId(), 10),
+                op(UUID.randomUUID(), 10),
+                op(organizer.getId(), 10),
+                op(attendee.getId(), -500),
+                op(attendee.getId(), 0),
+                op(null, 10)
+        ));
+
+        List<String> errors = response.getResults().stream().map(BalanceOperationResult::getError).toList();
+        assertEquals(1, response.getSucceeded());
+        assertEquals(5, response.getFailed());
+        assertEquals(List.of("USER_NOT_FOUND", "NOT_ATTENDEE", "INSUFFICIENT_BALANCE",
+                "INVALID_OPERATION", "INVALID_OPERATION"), errors.subList(1, errors.size()));
+        assertNull(errors.get(0));
+        assertBalance(110);
+    }
+
+    @Test
+    void testDebitsAreCheckedAgainstTheRunningBalance() {
+        BalanceBatchResponse response = balanceBatchService.applyBatch(List.of(
+                op(attendee.getId(), -60),
+                op(attendee.getId(), -60),
+                op(attendee.getId(), 20),
+                op(attendee.getId(), -60)
+        ));
+
+        List<Boolean> outcomes = response.getResults().stream().map(BalanceOperationResult::isSuccess).toList();
+        assertEquals(List.of(true, false, true, true), outcomes);
+        assertBalance(0);
+    }
+
+    @Test
+    void testOverflowingCreditIsReportedPerItem() {
+        long half = Long.MAX_VALUE / 2 + 1;
+
+        // The debit puts the attendee's running balance under projection
+        BalanceBatchResponse response = balanceBatchService.applyBatch(List.of(
+                op(attendee.getId(), -1),
+                new BalanceOperation(attendee.getId(), half),
+                new BalanceOperation(attendee.getId(), half)
+        ));
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals("BALANCE_OVERFLOW", response.getResults().get(2).getError());
+        assertEquals(2, balanceEntryRepository.findByUserIdOrderById(attendee.getId()).size());
+    }
+
+    @Test
+    void testLargeBatchSpansSeveralJdbcBatches() {
+        List<BalanceOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            operations.add(op(attendee.getId(), 1));
+        }
+
+        BalanceBatchResponse response = balanceBatchService.applyBatch(operations);
+
+        assertEquals(1200, response.getSucceeded());
+        assertBalance(1300);
+        assertEquals(1200, balanceEntryRepository.findByUserIdOrderById(attendee.getId()).stream()
+                .filter(entry -> entry.getOperation().equals("batch")).count());
+    }
+
+    @Test
+    void testRejectsEmptyBatch() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> balanceBatchService.applyBatch(List.of()));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    private void assertBalance(long expected) {
+        BigDecimal balance = userRepository.currentBalance(attendee.getId()).orElseThrow();
+        assertEquals(0, BigDecimal.valueOf(expected).compareTo(balance));
+    }
+
+    private static BalanceOperation op(UUID userId, long delta) {
+        return new BalanceOperation(userId, MinorUnits.of(BigDecimal.valueOf(delta)));
+    }
+}
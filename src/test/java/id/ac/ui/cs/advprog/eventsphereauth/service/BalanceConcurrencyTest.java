@@ -0,0 +1,153 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.BalanceEntryRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.security.TokenRevocationService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.UserDetailsCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({UserServiceImpl.class, BalanceCreditCoalescer.class, BalanceMailboxes.class, UserDetailsCache.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BalanceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPS_PER_THREAD = 100;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BalanceEntryRepository balanceEntryRepository;
+
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+    @MockitoBean
+    private TokenRevocationService tokenRevocationService;
+
+    private User hotAccount;
+
+    @BeforeEach
+    void setUp() {
+        hotAccount = new User("hot", "hot@example.com", "000", "password");
+        hotAccount.setRole(Role.USER);
+        hotAccount.setBalance(BigDecimal.valueOf(1000));
+        hotAccount = userRepository.save(hotAccount);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testConcurrentCreditsAreNeverLost() throws Exception {
+        String id = hotAccount.getId().toString();
+
+        runConcurrently(() -> userService.addBalance(id, BigDecimal.ONE));
+
+        BigDecimal expected = BigDecimal.valueOf(1000 + THREADS * OPS_PER_THREAD);
+        assertEquals(0, expected.compareTo(userService.getBalance(id)));
+    }
+
+    @Test
+    void testCoalescedCreditsAreNeverLost() throws Exception {
+        UUID id = hotAccount.getId();
+        // Each batch's write then queues on the account's stripe like any other mutation
+        BalanceMailboxes mailboxes = new BalanceMailboxes(true, 4, 1024);
+        BalanceCreditCoalescer coalescer = new BalanceCreditCoalescer(userRepository, mailboxes, true, 5, 64, 4);
+        try {
+            runConcurrently(() -> coalescer.credit(id, BigDecimal.ONE).join().orElseThrow());
+
+            BigDecimal expected = BigDecimal.valueOf(1000 + THREADS * OPS_PER_THREAD);
+            assertEquals(0, expected.compareTo(userService.getBalance(id.toString())));
+            // Concurrent credits share ledger writes instead of taking one each
+            assertTrue(balanceEntryRepository.findByUserIdOrderById(id).size() < THREADS * OPS_PER_THREAD);
+        } finally {
+            coalescer.shutdown();
+            mailboxes.shutdown();
+        }
+    }
+
+    @Test
+    void testConcurrentDebitsNeverOverdraw() throws Exception {
+        String id = hotAccount.getId().toString();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(() -> {
+            try {
+                userService.deductBalance(id, BigDecimal.ONE);
+                succeeded.incrementAndGet();
+            } catch (ResponseStatusException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(1000, succeeded.get());
+        assertEquals(THREADS * OPS_PER_THREAD - 1000, rejected.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(userService.getBalance(id)));
+    }
+
+    @Test
+    void testSingleWriterDebitsNeverOverdraw() throws Exception {
+        UUID id = hotAccount.getId();
+        BalanceMailboxes mailboxes = new BalanceMailboxes(true, 4, 1024);
+        AtomicInteger succeeded = new AtomicInteger();
+        try {
+            runConcurrently(() -> {
+                if (mailboxes.submit(id, () -> userRepository.debitBalance(id, BigDecimal.ONE)).isPresent()) {
+                    succeeded.incrementAndGet();
+                }
+            });
+
+            assertEquals(1000, succeeded.get());
+            assertEquals(0, BigDecimal.ZERO.compareTo(userService.getBalance(id.toString())));
+        } finally {
+            mailboxes.shutdown();
+        }
+    }
+
+    private void runConcurrently(Runnable operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    operation.run();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+}
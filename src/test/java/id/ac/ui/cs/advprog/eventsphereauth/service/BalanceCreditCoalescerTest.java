@@ -0,0 +1,104 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceCreditCoalescerTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final BalanceMailboxes balanceMailboxes = new BalanceMailboxes(false, 1, 1024);
+
+    private BalanceCreditCoalescer coalescer;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        coalescer.shutdown();
+    }
+
+    @Test
+    void testCreditsWithinWindowBecomeOneWrite() throws Exception {
+        coalescer = new BalanceCreditCoalescer(userRepository, balanceMailboxes, true, 200, 64, 1);
+        when(userRepository.creditBalance(userId, BigDecimal.valueOf(6))).thenReturn(Optional.of(BigDecimal.valueOf(106)));
+
+        CompletableFuture<Optional<BigDecimal>> first = coalescer.credit(userId, BigDecimal.ONE);
+        CompletableFuture<Optional<BigDecimal>> second = coalescer.credit(userId, BigDecimal.valueOf(2));
+        CompletableFuture<Optional<BigDecimal>> third = coalescer.credit(userId, BigDecimal.valueOf(3));
+
+        // Each caller sees the balance right after its own credit
+        assertEquals(BigDecimal.valueOf(101), first.get(5, TimeUnit.SECONDS).orElseThrow());
+        assertEquals(BigDecimal.valueOf(103), second.get(5, TimeUnit.SECONDS).orElseThrow());
+        assertEquals(BigDecimal.valueOf(106), third.get(5, TimeUnit.SECONDS).orElseThrow());
+        verify(userRepository, times(1)).creditBalance(any(), any());
+    }
+
+    @Test
+    void testFullBatchFlushesWithoutWaitingForWindow() throws Exception {
+        coalescer = new BalanceCreditCoalescer(userRepository, balanceMailboxes, true, 1_000, 2, 1);
+        when(userRepository.creditBalance(userId, BigDecimal.valueOf(2))).thenReturn(Optional.of(BigDecimal.valueOf(2)));
+        when(userRepository.creditBalance(userId, BigDecimal.ONE)).thenReturn(Optional.of(BigDecimal.valueOf(3)));
+
+        CompletableFuture<Optional<BigDecimal>> first = coalescer.credit(userId, BigDecimal.ONE);
+        CompletableFuture<Optional<BigDecimal>> second = coalescer.credit(userId, BigDecimal.ONE);
+        CompletableFuture<Optional<BigDecimal>> third = coalescer.credit(userId, BigDecimal.ONE);
+
+        assertEquals(BigDecimal.ONE, first.get(5, TimeUnit.SECONDS).orElseThrow());
+        assertEquals(BigDecimal.valueOf(2), second.get(5, TimeUnit.SECONDS).orElseThrow());
+        // The third credit opened a new batch, which waits out its window
+        assertFalse(third.isDone());
+        assertEquals(BigDecimal.valueOf(3), third.get(5, TimeUnit.SECONDS).orElseThrow());
+    }
+
+    @Test
+    void testUsersAreBatchedSeparately() throws Exception {
+        coalescer = new BalanceCreditCoalescer(userRepository, balanceMailboxes, true, 50, 64, 1);
+        UUID otherId = UUID.randomUUID();
+        when(userRepository.creditBalance(userId, BigDecimal.ONE)).thenReturn(Optional.of(BigDecimal.ONE));
+        when(userRepository.creditBalance(otherId, BigDecimal.TEN)).thenReturn(Optional.empty());
+
+        CompletableFuture<Optional<BigDecimal>> credited = coalescer.credit(userId, BigDecimal.ONE);
+        CompletableFuture<Optional<BigDecimal>> rejected = coalescer.credit(otherId, BigDecimal.TEN);
+
+        assertEquals(Optional.of(BigDecimal.ONE), credited.get(5, TimeUnit.SECONDS));
+        assertEquals(Optional.empty(), rejected.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testWriteFailureFailsEveryCallerInBatch() {
+        coalescer = new BalanceCreditCoalescer(userRepository, balanceMailboxes, true, 50, 64, 1);
+        RuntimeException failure = new RuntimeException("db down");
+        when(userRepository.creditBalance(userId, BigDecimal.valueOf(2))).thenThrow(failure);
+
+        CompletableFuture<Optional<BigDecimal>> first = coalescer.credit(userId, BigDecimal.ONE);
+        CompletableFuture<Optional<BigDecimal>> second = coalescer.credit(userId, BigDecimal.ONE);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertSame(failure, ex.getCause());
+        assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRejectsNonPositiveBatchSize() {
+        coalescer = new BalanceCreditCoalescer(userRepository, balanceMailboxes, true, 50, 1, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> new BalanceCreditCoalescer(userRepository, balanceMailboxes, true, 50, 0, 1));
+    }
+}
@@ -0,0 +1,275 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.dto.HoldResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.model.BalanceHold;
+import id.ac.ui.cs.advprog.eventsphereauth.model.HoldStatus;
+import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.BalanceEntryRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.BalanceHoldRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({BalanceHoldServiceImpl.class, BalanceMailboxes.class, SimpleMeterRegistry.class})
+@TestPropertySource(properties = {
+        "app.balance.hold.default-ttl-ms=200",
+        "app.balance.hold.tick-ms=10"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BalanceHoldServiceImplTest {
+
+    @Autowired
+    private BalanceHoldServiceImpl balanceHoldService;
+
+    @Autowired
+    private BalanceHoldRepository balanceHoldRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BalanceEntryRepository balanceEntryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private UUID attendeeId;
+
+    @BeforeEach
+    void setUp() {
+        User attendee = new User("attendee", "attendee@example.com", "000", "password");
+        attendee.setRole(Role.USER);
+        attendee.setBalance(BigDecimal.valueOf(50));
+        attendeeId = userRepository.save(attendee).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceHoldRepository.deleteAll();
+        userRepository.deleteAll();
+        balanceEntryRepository.deleteAll();
+    }
+
+    @Test
+    void testReserveHoldsFundsAndCaptureKeepsThem() {
+        int pendingBefore = balanceHoldService.pending();
+        HoldResponse hold = balanceHoldService.reserve(attendeeId, BigDecimal.valueOf(30), 60L);
+
+        assertEquals(HoldStatus.HELD, hold.getStatus());
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(hold.getBalance()));
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(available()));
+        // Held funds are gone from the available balance, so an ordinary deduct cannot spend them
+        assertTrue(userRepository.debitBalance(attendeeId, BigDecimal.valueOf(30)).isEmpty());
+
+        HoldResponse captured = balanceHoldService.capture(hold.getId());
+
+        assertEquals(HoldStatus.CAPTURED, captured.getStatus());
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(captured.getBalance()));
+        assertEquals(1, balanceEntryRepository.findByUserIdOrderById(attendeeId).size());
+        assertEquals(pendingBefore, balanceHoldService.pending());
+
+        // A retried capture reports the same outcome; releasing a captured hold is a conflict
+        assertEquals(HoldStatus.CAPTURED, balanceHoldService.capture(hold.getId()).getStatus());
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> balanceHoldService.release(hold.getId()));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(available()));
+    }
+
+    @Test
+    void testReleaseReturnsFundsOnce() {
+        HoldResponse hold = balanceHoldService.reserve(attendeeId, BigDecimal.valueOf(30), 60L);
+
+        HoldResponse released = balanceHoldService.release(hold.getId());
+
+        assertEquals(HoldStatus.RELEASED, released.getStatus());
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(released.getBalance()));
+        assertEquals(HoldStatus.RELEASED, balanceHoldService.release(hold.getId()).getStatus());
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(available()));
+        assertEquals(List.of("hold", "release"), balanceEntryRepository.findByUserIdOrderById(attendeeId)
+                .stream().map(entry -> entry.getOperation()).toList());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> balanceHoldService.capture(hold.getId()));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        assertEquals("HOLD_RELEASED", ex.getReason());
+    }
+
+    @Test
+    void testTickExpiresUncapturedHold() throws Exception {
+        int pendingBefore = balanceHoldService.pending();
+        HoldResponse hold = balanceHoldService.reserve(attendeeId, BigDecimal.valueOf(30), null);
+        assertEquals(pendingBefore + 1, balanceHoldService.pending());
+        assertEquals(pendingBefore + 1, meterRegistry.get("balance.holds.pending").gauge().value());
+
+        balanceHoldService.tick();
+        assertEquals(HoldStatus.HELD, balanceHoldRepository.findById(hold.getId()).orElseThrow().getStatus());
+
+        Thread.sleep(300);
+        balanceHoldService.tick();
+
+        awaitStatus(hold.getId(), HoldStatus.EXPIRED);
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(available()));
+        assertEquals(pendingBefore, balanceHoldService.pending());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> balanceHoldService.capture(hold.getId()));
+        assertEquals("HOLD_EXPIRED", ex.getReason());
+        // Releasing an expired hold is a no-op: the funds are already back
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(balanceHoldService.release(hold.getId()).getBalance()));
+    }
+
+    @Test
+    void testCaptureAfterDeadlineFailsBeforeTimerFires() throws Exception {
+        HoldResponse hold = balanceHoldService.reserve(attendeeId, BigDecimal.valueOf(30), null);
+        Thread.sleep(300);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> balanceHoldService.capture(hold.getId()));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        assertEquals("HOLD_EXPIRED", ex.getReason());
+    }
+
+    @Test
+    void testSyncPicksUpHoldsFromOtherInstances() throws Exception {
+        Instant now = Instant.now();
+        UUID holdId = UUID.randomUUID();
+        userRepository.debitBalance(attendeeId, BigDecimal.valueOf(30), "hold", holdId);
+        balanceHoldRepository.save(BalanceHold.builder()
+                .id(holdId)
+                .userId(attendeeId)
+                .amount(BigDecimal.valueOf(30))
+                .status(HoldStatus.HELD)
+                .createdAt(now)
+                .expiresAt(now.plusMillis(100))
+                .build());
+
+        int pendingBefore = balanceHoldService.pending();
+        balanceHoldService.sync();
+        assertEquals(pendingBefore + 1, balanceHoldService.pending());
+        Thread.sleep(200);
+        balanceHoldService.tick();
+
+        awaitStatus(holdId, HoldStatus.EXPIRED);
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(available()));
+    }
+
+    @Test
+    void testReserveRejections() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> balanceHoldService.reserve(attendeeId, BigDecimal.valueOf(60), 60L));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        assertThrows(IllegalArgumentException.class,
+                () -> balanceHoldService.reserve(attendeeId, BigDecimal.ZERO, 60L));
+        assertThrows(IllegalArgumentException.class,
+                () -> balanceHoldService.reserve(attendeeId, BigDecimal.TEN, 86_400L));
+        assertThrows(IllegalArgumentException.class,
+                () -> balanceHoldService.reserve(UUID.randomUUID(), BigDecimal.TEN, 60L));
+
+        assertEquals(0, balanceHoldRepository.count());
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(available()));
+    }
+
+    @Test
+    void testUnknownHoldReturns404() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> balanceHoldService.capture(UUID.randomUUID()));
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+    }
+
+    @Test
+    void testConcurrentReservesNeverOverdraw() throws Exception {
+        int threads = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    try {
+                        balanceHoldService.reserve(attendeeId, BigDecimal.TEN, 60L);
+                        return true;
+                    } catch (ResponseStatusException e) {
+                        return false;
+                    }
+                }));
+            }
+            int held = 0;
+            for (Future<Boolean> result : results) {
+                held += result.get() ? 1 : 0;
+            }
+
+            assertEquals(5, held);
+            assertEquals(5, balanceHoldRepository.findByStatus(HoldStatus.HELD).size());
+            assertEquals(0, BigDecimal.ZERO.compareTo(available()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testReleaseAndExpiryCreditThroughTheAccountStripe() throws Exception {
+        BalanceMailboxes mailboxes = new BalanceMailboxes(true, 2, 16);
+        BalanceHoldServiceImpl singleWriter = new BalanceHoldServiceImpl(
+                balanceHoldRepository, userRepository, mailboxes, transactionManager, new SimpleMeterRegistry(),
+                200, 900_000, 10, 1);
+        try {
+            HoldResponse released = singleWriter.reserve(attendeeId, BigDecimal.valueOf(20), 60L);
+            HoldResponse expiring = singleWriter.reserve(attendeeId, BigDecimal.valueOf(30), null);
+            assertEquals(0, BigDecimal.ZERO.compareTo(available()));
+
+            assertEquals(0, BigDecimal.valueOf(20).compareTo(singleWriter.release(released.getId()).getBalance()));
+            Thread.sleep(300);
+            singleWriter.tick();
+
+            awaitStatus(expiring.getId(), HoldStatus.EXPIRED);
+            assertEquals(0, BigDecimal.valueOf(50).compareTo(available()));
+        } finally {
+            singleWriter.shutdown();
+            mailboxes.shutdown();
+        }
+    }
+
+    // Expiries run on the service's own pool, so the tick returns before they commit
+    private void awaitStatus(UUID holdId, HoldStatus status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (balanceHoldRepository.findById(holdId).orElseThrow().getStatus() != status
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(status, balanceHoldRepository.findById(holdId).orElseThrow().getStatus());
+    }
+
+    private BigDecimal available() {
+        return userRepository.currentBalance(attendeeId).orElseThrow();
+    }
+}
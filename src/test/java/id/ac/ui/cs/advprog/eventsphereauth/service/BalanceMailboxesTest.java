@@ -0,0 +1,146 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceMailboxesTest {
+
+    private BalanceMailboxes mailboxes;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        mailboxes.shutdown();
+    }
+
+    @Test
+    void testOperationsOnOneAccountNeverOverlap() throws Exception {
+        mailboxes = new BalanceMailboxes(true, 4, 1024);
+        UUID userId = UUID.randomUUID();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(callers.submit(() -> mailboxes.submit(userId, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.onSpinWait();
+                    return running.decrementAndGet();
+                })));
+            }
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void testRunsOnStripeThreadAndNestedCallsRunInline() {
+        mailboxes = new BalanceMailboxes(true, 2, 1024);
+        UUID first = UUID.randomUUID();
+
+        String[] threads = mailboxes.submit(first, () -> new String[] {
+                Thread.currentThread().getName(),
+                // Submitting from a stripe never waits on another stripe
+                mailboxes.submit(UUID.randomUUID(), () -> Thread.currentThread().getName())
+        });
+
+        assertTrue(threads[0].startsWith("balance-writer-"));
+        assertEquals(threads[0], threads[1]);
+    }
+
+    @Test
+    void testDisabledRunsOnCallerThread() {
+        mailboxes = new BalanceMailboxes(false, 4, 1024);
+
+        String thread = mailboxes.submit(UUID.randomUUID(), () -> Thread.currentThread().getName());
+
+        assertEquals(Thread.currentThread().getName(), thread);
+        assertFalse(mailboxes.isEnabled());
+    }
+
+    @Test
+    void testExceptionsReachTheCallerUnwrapped() {
+        mailboxes = new BalanceMailboxes(true, 1, 1024);
+        ResponseStatusException failure = new ResponseStatusException(HttpStatus.BAD_REQUEST, "INSUFFICIENT_BALANCE");
+
+        ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                () -> mailboxes.submit(UUID.randomUUID(), () -> {
+                    throw failure;
+                }));
+
+        assertSame(failure, thrown);
+    }
+
+    @Test
+    void testFullMailboxIsRejectedWithServiceUnavailable() throws Exception {
+        mailboxes = new BalanceMailboxes(true, 1, 1);
+        UUID userId = UUID.randomUUID();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> blocking = callers.submit(() -> mailboxes.submit(userId, () -> {
+                running.countDown();
+                return awaitQuietly(release);
+            }));
+            running.await(5, TimeUnit.SECONDS);
+            AtomicReference<Thread> queuedCaller = new AtomicReference<>();
+            Future<?> queued = callers.submit(() -> {
+                queuedCaller.set(Thread.currentThread());
+                return mailboxes.submit(userId, () -> true);
+            });
+            // The caller only parks once its operation sits in the mailbox
+            while (queuedCaller.get() == null || queuedCaller.get().getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+
+            ResponseStatusException thrown = assertThrows(ResponseStatusException.class,
+                    () -> mailboxes.submit(userId, () -> true));
+
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, thrown.getStatusCode());
+            assertEquals("BALANCE_BUSY", thrown.getReason());
+            release.countDown();
+            blocking.get(5, TimeUnit.SECONDS);
+            queued.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRejectsNonPositiveStripeCount() {
+        mailboxes = new BalanceMailboxes(false, 1, 1024);
+        assertThrows(IllegalArgumentException.class, () -> new BalanceMailboxes(true, 0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new BalanceMailboxes(true, 1, 0));
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
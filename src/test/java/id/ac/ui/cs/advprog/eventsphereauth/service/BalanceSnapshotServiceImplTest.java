@@ -0,0 +1,121 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.model.User;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.BalanceEntryRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(BalanceSnapshotServiceImpl.class)
+@TestPropertySource(properties = "app.balance.ledger.settle-ms=0")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BalanceSnapshotServiceImplTest {
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BalanceEntryRepository balanceEntryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID attendeeId;
+
+    @BeforeEach
+    void setUp() {
+        User attendee = new User("attendee", "attendee@example.com", "000", "password");
+        attendee.setRole(Role.USER);
+        attendee.setBalance(BigDecimal.valueOf(50));
+        attendeeId = userRepository.save(attendee).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        balanceEntryRepository.deleteAll();
+    }
+
+    @Test
+    void testFoldsSettledEntriesIntoTheSnapshot() {
+        userRepository.creditBalance(attendeeId, BigDecimal.valueOf(25));
+        userRepository.debitBalance(attendeeId, BigDecimal.valueOf(10));
+        long lastEntry = balanceEntryRepository.findByUserIdOrderById(attendeeId).get(1).getId();
+
+        assertEquals(1, balanceSnapshotService.snapshot());
+
+        User snapshot = userRepository.findById(attendeeId).orElseThrow();
+        assertEquals(0, BigDecimal.valueOf(65).compareTo(snapshot.getBalance()));
+        assertEquals(lastEntry, snapshot.getBalanceEntryId());
+        assertEquals(0, BigDecimal.valueOf(65).compareTo(userRepository.currentBalance(attendeeId).orElseThrow()));
+        // The history stays; only where reads start summing has moved
+        assertEquals(2, balanceEntryRepository.findByUserIdOrderById(attendeeId).size());
+        assertEquals(0, balanceSnapshotService.snapshot());
+    }
+
+    @Test
+    void testLeavesEntriesInsideTheSettleWindowAlone() {
+        userRepository.creditBalance(attendeeId, BigDecimal.valueOf(25));
+
+        assertEquals(0, new BalanceSnapshotServiceImpl(jdbcTemplate, TimeUnit.MINUTES.toMillis(1)).snapshot());
+
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(userRepository.findById(attendeeId).orElseThrow().getBalance()));
+        assertEquals(0, BigDecimal.valueOf(75).compareTo(userRepository.currentBalance(attendeeId).orElseThrow()));
+    }
+
+    @Test
+    void testBalanceStaysExactWhileSnapshotsRunConcurrently() throws Exception {
+        // A real settle window: with none, an entry committing late could land behind a snapshot
+        BalanceSnapshotService snapshots = new BalanceSnapshotServiceImpl(jdbcTemplate, 200);
+        List<Future<?>> writers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (int t = 0; t < 4; t++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        userRepository.creditBalance(attendeeId, BigDecimal.ONE);
+                        Thread.sleep(2);
+                    }
+                    return null;
+                }));
+            }
+            int folded = 0;
+            while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+                folded += snapshots.snapshot();
+                Thread.sleep(20);
+            }
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            assertTrue(folded > 0);
+        }
+        Thread.sleep(250);
+        snapshots.snapshot();
+
+        assertEquals(0, BigDecimal.valueOf(450).compareTo(userRepository.currentBalance(attendeeId).orElseThrow()));
+        assertEquals(0, BigDecimal.valueOf(450).compareTo(userRepository.findById(attendeeId).orElseThrow().getBalance()));
+    }
+}
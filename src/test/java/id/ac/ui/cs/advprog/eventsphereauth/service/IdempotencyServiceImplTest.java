@@ -0,0 +1,168 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.IdempotencyRecord;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplTest {
+
+    @Mock
+    private IdempotencyRecordRepository recordRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyServiceImpl idempotencyService;
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyServiceImpl(recordRepository, transactionManager, 100, 60_000, false);
+        userId = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void testDuplicateKeyReturnsStoredResultWithoutRunningAgain() {
+        AtomicInteger runs = new AtomicInteger();
+
+        BigDecimal first = idempotencyService.execute("key-1", "add", userId, BigDecimal.TEN,
+                () -> BigDecimal.valueOf(100 + runs.incrementAndGet()));
+        BigDecimal second = idempotencyService.execute("key-1", "add", userId, BigDecimal.TEN,
+                () -> BigDecimal.valueOf(100 + runs.incrementAndGet()));
+
+        assertEquals(1, runs.get());
+        assertEquals(first, second);
+        verifyNoInteractions(recordRepository, transactionManager);
+    }
+
+    @Test
+    void testSameKeyOnDifferentOperationRunsSeparately() {
+        AtomicInteger runs = new AtomicInteger();
+
+        idempotencyService.execute("key-1", "add", userId, BigDecimal.TEN, () -> BigDecimal.valueOf(runs.incrementAndGet()));
+        idempotencyService.execute("key-1", "deduct", userId, BigDecimal.TEN, () -> BigDecimal.valueOf(runs.incrementAndGet()));
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testReusedKeyWithDifferentAmountIsRejected() {
+        idempotencyService.execute("key-1", "add", userId, BigDecimal.TEN, () -> BigDecimal.ONE);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () ->
+                idempotencyService.execute("key-1", "add", userId, BigDecimal.ONE, () -> BigDecimal.ONE));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatusCode());
+    }
+
+    @Test
+    void testFailedActionIsNotRecordedSoRetryRunsAgain() {
+        assertThrows(IllegalStateException.class, () ->
+                idempotencyService.execute("key-1", "deduct", userId, BigDecimal.TEN, () -> {
+                    throw new IllegalStateException("boom");
+                }));
+
+        BigDecimal retried = idempotencyService.execute("key-1", "deduct", userId, BigDecimal.TEN, () -> BigDecimal.ONE);
+
+        assertEquals(BigDecimal.ONE, retried);
+    }
+
+    @Test
+    void testKeyStillInFlightIsRejectedWithConflict() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () ->
+                idempotencyService.execute("key-1", "add", userId, BigDecimal.TEN, () ->
+                        idempotencyService.execute("key-1", "add", userId, BigDecimal.TEN, () -> BigDecimal.ONE)));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+    }
+
+    @Test
+    void testOverlongKeyIsRejected() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () ->
+                idempotencyService.execute("k".repeat(256), "add", userId, BigDecimal.TEN, () -> BigDecimal.ONE));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void testPersistentModeStoresRecordInSameTransaction() {
+        idempotencyService = new IdempotencyServiceImpl(recordRepository, transactionManager, 100, 60_000, true);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(recordRepository.findById(any())).thenReturn(Optional.empty());
+
+        BigDecimal balance = idempotencyService.execute("key-1", "add", userId, BigDecimal.TEN, () -> BigDecimal.valueOf(110));
+
+        assertEquals(BigDecimal.valueOf(110), balance);
+        verify(recordRepository).saveAndFlush(argThat(record ->
+                record.getId().equals("add:" + userId + ":key-1")
+                        && record.getResultBalance().equals(BigDecimal.valueOf(110))
+                        && record.isNew()));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testPersistentModeReplaysRecordWrittenByAnotherInstance() {
+        idempotencyService = new IdempotencyServiceImpl(recordRepository, transactionManager, 100, 60_000, true);
+        IdempotencyRecord record = IdempotencyRecord.builder()
+                .id("add:" + userId + ":key-1")
+                .amount(BigDecimal.TEN)
+                .resultBalance(BigDecimal.valueOf(110))
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+        when(recordRepository.findById("add:" + userId + ":key-1")).thenReturn(Optional.of(record));
+
+        BigDecimal balance = idempotencyService.execute("key-1", "add", userId, BigDecimal.TEN, () -> {
+            throw new AssertionError("must not run");
+        });
+
+        assertEquals(BigDecimal.valueOf(110), balance);
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void testPersistentModeConcurrentInsertReturnsWinnerResult() {
+        idempotencyService = new IdempotencyServiceImpl(recordRepository, transactionManager, 100, 60_000, true);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        IdempotencyRecord winner = IdempotencyRecord.builder()
+                .amount(BigDecimal.TEN)
+                .resultBalance(BigDecimal.valueOf(110))
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+        when(recordRepository.findById(any())).thenReturn(Optional.empty(), Optional.of(winner));
+        when(recordRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        BigDecimal balance = idempotencyService.execute("key-1", "add", userId, BigDecimal.TEN, () -> BigDecimal.valueOf(999));
+
+        assertEquals(BigDecimal.valueOf(110), balance);
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testPurgeExpiredOnlyRunsWhenPersistent() {
+        idempotencyService.purgeExpired();
+        verifyNoInteractions(recordRepository);
+
+        idempotencyService = new IdempotencyServiceImpl(recordRepository, transactionManager, 100, 60_000, true);
+        idempotencyService.purgeExpired();
+        verify(recordRepository).deleteExpired(any());
+    }
+}
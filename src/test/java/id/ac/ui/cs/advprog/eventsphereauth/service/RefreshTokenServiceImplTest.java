@@ -0,0 +1,122 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.model.RefreshToken;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Real transactions, so the revocation on reuse is seen to commit despite the error
+@DataJpaTest
+@Import(RefreshTokenServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceImplTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAll();
+    }
+
+    @Test
+    void testIssueStoresOnlyTheHash() {
+        UUID userId = UUID.randomUUID();
+
+        String token = refreshTokenService.issue(userId);
+
+        RefreshToken stored = refreshTokenRepository.findAll().get(0);
+        assertNotEquals(token, stored.getTokenHash());
+        assertEquals(RefreshTokenServiceImpl.hash(token), stored.getTokenHash());
+        assertEquals(userId, stored.getUserId());
+        assertNull(stored.getRotatedAt());
+    }
+
+    @Test
+    void testRotateIssuesNextTokenInSameFamily() {
+        UUID userId = UUID.randomUUID();
+        String first = refreshTokenService.issue(userId);
+
+        RefreshTokenService.Rotated rotated = refreshTokenService.rotate(first);
+        RefreshTokenService.Rotated again = refreshTokenService.rotate(rotated.refreshToken());
+
+        assertEquals(userId, rotated.userId());
+        assertEquals(userId, again.userId());
+        assertNotEquals(first, rotated.refreshToken());
+        RefreshToken firstRow = refreshTokenRepository.findById(RefreshTokenServiceImpl.hash(first)).orElseThrow();
+        RefreshToken lastRow = refreshTokenRepository.findById(RefreshTokenServiceImpl.hash(again.refreshToken())).orElseThrow();
+        assertEquals(firstRow.getFamilyId(), lastRow.getFamilyId());
+        assertNotNull(firstRow.getRotatedAt());
+    }
+
+    @Test
+    void testReusingRotatedTokenRevokesWholeFamily() {
+        String first = refreshTokenService.issue(UUID.randomUUID());
+        String unrelated = refreshTokenService.issue(UUID.randomUUID());
+        String second = refreshTokenService.rotate(first).refreshToken();
+
+        ResponseStatusException reused = assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate(first));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, reused.getStatusCode());
+        assertEquals("REFRESH_TOKEN_REUSED", reused.getReason());
+        ResponseStatusException revoked = assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate(second));
+        assertEquals("INVALID_REFRESH_TOKEN", revoked.getReason());
+        assertEquals(1, refreshTokenRepository.count());
+        assertNotNull(refreshTokenService.rotate(unrelated));
+    }
+
+    @Test
+    void testUnknownBlankAndRevokedTokensAreRejected() {
+        String token = refreshTokenService.issue(UUID.randomUUID());
+        refreshTokenService.revoke(token);
+
+        for (String candidate : new String[]{token, "unknown", "", null}) {
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate(candidate));
+            assertEquals("INVALID_REFRESH_TOKEN", ex.getReason());
+        }
+    }
+
+    @Test
+    void testConcurrentRefreshOfOneTokenHasExactlyOneWinner() throws Exception {
+        String token = refreshTokenService.issue(UUID.randomUUID());
+        int threads = 8;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        refreshTokenService.rotate(token);
+                        return true;
+                    } catch (ResponseStatusException e) {
+                        return false;
+                    }
+                }));
+            }
+            int winners = 0;
+            for (Future<Boolean> result : results) {
+                winners += result.get(30, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(1, winners);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package id.ac.ui.cs.advprog.eventsphereauth.service;
+
+import id.ac.ui.cs.advprog.eventsphereauth.dto.AuthResponse;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.RefreshRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.dto.RegisterRequest;
+import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
+import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.security.JwtService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.TokenRevocationService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.UserDetailsCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@Import({AuthServiceImpl.class, UserServiceImpl.class, BalanceCreditCoalescer.class, BalanceMailboxes.class, UserDetailsCache.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RegistrationConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int EMAILS = 10;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private PasswordEncoder passwordEncoder;
+    @MockitoBean
+    private JwtService jwtService;
+    @MockitoBean
+    private AuthenticationManager authenticationManager;
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+    @MockitoBean
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        when(passwordEncoder.encode(any())).thenReturn("hash");
+        when(jwtService.generateToken(any())).thenReturn("token");
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testDuplicateSignUpsAreRejectedUnderContention() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        List<Throwable> unexpected = new CopyOnWriteArrayList<>();
+
+        try {
+            for (int e = 0; e < EMAILS; e++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    // Case and whitespace variants of the same address must collide too
+                    String email = (t % 2 == 0 ? "fan" + e + "@example.com" : " FAN" + e + "@Example.com ");
+                    futures.add(pool.submit(() -> {
+                        start.await();
+                        try {
+                            authService.register(request(email));
+                            succeeded.incrementAndGet();
+                        } catch (IllegalArgumentException ex) {
+                            assertEquals("Email already exists", ex.getMessage());
+                            duplicates.incrementAndGet();
+                        } catch (Throwable ex) {
+                            unexpected.add(ex);
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(unexpected.isEmpty(), () -> "unexpected failures: " + unexpected);
+        assertEquals(EMAILS, succeeded.get());
+        assertEquals(EMAILS * (THREADS - 1), duplicates.get());
+        assertEquals(EMAILS, userRepository.count());
+    }
+
+    @Test
+    void testAuthResponsesIncludeUnfoldedLedgerEntries() {
+        AuthResponse registered = authService.register(request("fan@example.com"));
+        UUID userId = registered.getUser().getId();
+        // Ledger entries the snapshot job has not folded into users.balance yet
+        userRepository.creditBalance(userId, BigDecimal.valueOf(75));
+        userRepository.debitBalance(userId, BigDecimal.valueOf(25));
+        when(refreshTokenService.rotate("refresh")).thenReturn(new RefreshTokenService.Rotated(userId, "rotated"));
+
+        AuthResponse refreshed = authService.refresh(new RefreshRequest("refresh"));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(userRepository.findById(userId).orElseThrow().getBalance()));
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(refreshed.getUser().getBalance()));
+    }
+
+    private static RegisterRequest request(String email) {
+        return RegisterRequest.builder()
+                .username("fan")
+                .email(email)
+                .phoneNumber("000")
+                .password("password")
+                .role(Role.USER)
+                .build();
+    }
+}
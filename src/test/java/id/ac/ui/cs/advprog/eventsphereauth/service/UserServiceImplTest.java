@@ -1,16 +1,23 @@
 package id.ac.ui.cs.advprog.eventsphereauth.service;
 
+import id.ac.ui.cs.advprog.eventsphereauth.dto.UserPageResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserResponse;
 import id.ac.ui.cs.advprog.eventsphereauth.dto.UserUpdateRequest;
 import id.ac.ui.cs.advprog.eventsphereauth.model.Role;
 import id.ac.ui.cs.advprog.eventsphereauth.model.User;
 import id.ac.ui.cs.advprog.eventsphereauth.repository.UserRepository;
+import id.ac.ui.cs.advprog.eventsphereauth.security.TokenRevocationService;
+import id.ac.ui.cs.advprog.eventsphereauth.security.UserDetailsCache;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
@@ -21,10 +28,13 @@ import org.springframework.web.client.RestClientException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,6 +45,16 @@ class UserServiceImplTest {
     @Mock
     private UserRepository userRepository;
     @Mock
+    private UserDetailsCache userDetailsCache;
+    @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+    @Mock
+    private BalanceCreditCoalescer balanceCreditCoalescer;
+    @Spy
+    private BalanceMailboxes balanceMailboxes = new BalanceMailboxes(false, 1, 1024);
+    @Mock
     private SecurityContext securityContext;
     @Mock
     private Authentication authentication;
@@ -80,26 +100,54 @@ class UserServiceImplTest {
     }
 
     @Test
-    void testGetAllUsersSuccess() {
-        List<User> users = Arrays.asList(user1, user2);
-        when(userRepository.findAll()).thenReturn(users);
+    void testGetUsersFirstPageReturnsCursorWhenMoreRowsExist() {
+        when(userRepository.findResponsesOrderById(Limit.of(2)))
+                .thenReturn(Arrays.asList(userService.mapToUserResponse(user1), userService.mapToUserResponse(user2)));
+
+        UserPageResponse page = userService.getUsers(null, 1);
+
+        assertEquals(1, page.getUsers().size());
+        assertEquals(user1Id, page.getUsers().get(0).getId());
+        assertEquals("userone", page.getUsers().get(0).getUsername());
+        assertEquals(user1Id, page.getNextCursor());
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetUsersAfterCursorReturnsLastPage() {
+        when(userRepository.findResponsesAfter(user1Id, Limit.of(11)))
+                .thenReturn(List.of(userService.mapToUserResponse(user2)));
+
+        UserPageResponse page = userService.getUsers(user1Id, 10);
+
+        assertEquals(1, page.getUsers().size());
+        assertEquals(user2Id, page.getUsers().get(0).getId());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetUsersClampsPageSize() {
+        when(userRepository.findResponsesOrderById(any())).thenReturn(List.of());
+
+        userService.getUsers(null, 1_000_000);
 
-        List<UserResponse> userResponses = userService.getAllUsers();
+        verify(userRepository).findResponsesOrderById(Limit.of(UserServiceImpl.MAX_PAGE_SIZE + 1));
+    }
 
-        assertNotNull(userResponses);
-        assertEquals(2, userResponses.size());
-        assertEquals(user1Id, userResponses.get(0).getId());
-        assertEquals("userone", userResponses.get(0).getUsername());
-        assertEquals(user2Id, userResponses.get(1).getId());
-        assertEquals("usertwo", userResponses.get(1).getUsername());
+    @Test
+    void testExportUsersStreamsEveryRow() {
+        when(userRepository.streamResponsesOrderById())
+                .thenReturn(Stream.of(userService.mapToUserResponse(user1), userService.mapToUserResponse(user2)));
+        List<UserResponse> exported = new ArrayList<>();
 
+        userService.exportUsers(exported::add);
 
-        verify(userRepository, times(1)).findAll();
+        assertEquals(List.of(user1Id, user2Id), exported.stream().map(UserResponse::getId).toList());
     }
 
     @Test
     void testGetUserByIdSuccess() {
-        when(userRepository.findById(user1Id)).thenReturn(Optional.of(user1));
+        when(userRepository.findResponseById(user1Id)).thenReturn(Optional.of(userService.mapToUserResponse(user1)));
 
         UserResponse userResponse = userService.getUserById(user1Id);
 
@@ -107,12 +155,13 @@ class UserServiceImplTest {
         assertEquals(user1Id, userResponse.getId());
         assertEquals("userone", userResponse.getUsername());
 
-        verify(userRepository, times(1)).findById(user1Id);
+        verify(userRepository, times(1)).findResponseById(user1Id);
+        verify(userRepository, never()).findById(any());
     }
 
     @Test
     void testGetUserByIdNotFound() {
-        when(userRepository.findById(user1Id)).thenReturn(Optional.empty());
+        when(userRepository.findResponseById(user1Id)).thenReturn(Optional.empty());
 
         UsernameNotFoundException exception = assertThrows(UsernameNotFoundException.class, () -> {
             userService.getUserById(user1Id);
@@ -120,7 +169,7 @@ class UserServiceImplTest {
 
         assertEquals("User not found with id: " + user1Id, exception.getMessage());
 
-        verify(userRepository, times(1)).findById(user1Id);
+        verify(userRepository, times(1)).findResponseById(user1Id);
     }
 
     @Test
@@ -129,7 +178,8 @@ class UserServiceImplTest {
         when(authentication.isAuthenticated()).thenReturn(true);
         when(authentication.getPrincipal()).thenReturn("userone@example.com");
         when(authentication.getName()).thenReturn("userone@example.com");
-        when(userRepository.findByEmail("userone@example.com")).thenReturn(Optional.of(user1));
+        when(userRepository.findResponseByEmail("userone@example.com"))
+                .thenReturn(Optional.of(userService.mapToUserResponse(user1)));
 
         UserResponse userResponse = userService.getAuthenticatedUserResponse();
 
@@ -141,7 +191,8 @@ class UserServiceImplTest {
         verify(securityContext, times(1)).getAuthentication();
         verify(authentication, times(1)).isAuthenticated();
         verify(authentication, times(1)).getName();
-        verify(userRepository, times(1)).findByEmail("userone@example.com");
+        verify(userRepository, times(1)).findResponseByEmail("userone@example.com");
+        verify(userRepository, never()).findByEmail(any());
     }
 
 
@@ -186,6 +237,7 @@ class UserServiceImplTest {
 
         verify(userRepository, times(1)).findById(user1Id);
         verify(userRepository, times(1)).save(any(User.class));
+        verify(userDetailsCache, times(1)).invalidate("userone@example.com");
     }
 
     @Test
@@ -212,6 +264,7 @@ class UserServiceImplTest {
 
         verify(userRepository, times(1)).findById(user1Id);
         verify(userRepository, times(1)).save(any(User.class));
+        verify(userDetailsCache, times(1)).invalidate("userone@example.com");
     }
 
     @Test
@@ -300,6 +353,9 @@ class UserServiceImplTest {
 
         verify(userRepository, times(1)).findById(user1Id);
         verify(userRepository, times(1)).deleteById(user1Id);
+        verify(userDetailsCache, times(1)).invalidate("userone@example.com");
+        verify(refreshTokenService, times(1)).revokeAll(user1Id);
+        verify(tokenRevocationService, times(1)).revokeUser(user1Id);
     }
 
     @Test
@@ -387,13 +443,14 @@ class UserServiceImplTest {
     @Test
     void testAddBalanceSuccess() {
         BigDecimal amount = BigDecimal.valueOf(100.25);
-        when(userRepository.findById(user1Id)).thenReturn(Optional.of(user1));
+        when(userRepository.creditBalance(user1Id, amount)).thenReturn(Optional.of(BigDecimal.valueOf(200.25)));
 
-        userService.addBalance(user1Id.toString(), amount);
+        BigDecimal balance = userService.addBalance(user1Id.toString(), amount);
 
-        verify(userRepository).save(argThat(u ->
-                u.getId().equals(user1Id) && u.getBalance().compareTo(amount) == 0
-        ));
+        assertEquals(BigDecimal.valueOf(200.25), balance);
+        verify(userRepository).creditBalance(user1Id, amount);
+        verify(userRepository, never()).findById(any());
+        verify(userRepository, never()).save(any());
     }
 
     @Test
@@ -412,6 +469,7 @@ class UserServiceImplTest {
 
     @Test
     void testAddBalanceUserNotFound() {
+        when(userRepository.creditBalance(eq(user1Id), any())).thenReturn(Optional.empty());
         when(userRepository.findById(user1Id)).thenReturn(Optional.empty());
         assertThrows(IllegalArgumentException.class,
                 () -> userService.addBalance(user1Id.toString(), BigDecimal.valueOf(10))
@@ -421,22 +479,99 @@ class UserServiceImplTest {
     @Test
     void testDeductBalanceSuccess() {
         BigDecimal amount = BigDecimal.valueOf(50);
-        user1.setBalance(BigDecimal.valueOf(100));
-        when(userRepository.findById(user1Id)).thenReturn(Optional.of(user1));
+        when(userRepository.debitBalance(user1Id, amount)).thenReturn(Optional.of(BigDecimal.valueOf(50)));
 
-        userService.deductBalance(user1Id.toString(), amount);
+        BigDecimal balance = userService.deductBalance(user1Id.toString(), amount);
 
-        verify(userRepository).save(argThat(u ->
-                u.getId().equals(user1Id) && u.getBalance().compareTo(BigDecimal.valueOf(50)) == 0
-        ));
+        assertEquals(BigDecimal.valueOf(50), balance);
+        verify(userRepository).debitBalance(user1Id, amount);
+        verify(userRepository, never()).findById(any());
+        verify(userRepository, never()).save(any());
     }
 
     @Test
     void testDeductBalanceInsufficientFunds() {
+        when(userRepository.debitBalance(eq(user1Id), any())).thenReturn(Optional.empty());
         when(userRepository.findById(user1Id)).thenReturn(Optional.of(user1));
-        assertThrows(ResponseStatusException.class,
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> userService.deductBalance(user1Id.toString(), BigDecimal.valueOf(1))
+        );
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void testDeductBalanceKeepsBusyMailboxStatus() {
+        doThrow(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "BALANCE_BUSY"))
+                .when(balanceMailboxes).submit(eq(user1Id), any());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
                 () -> userService.deductBalance(user1Id.toString(), BigDecimal.valueOf(1))
         );
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+        assertEquals("BALANCE_BUSY", ex.getReason());
+    }
+
+    @Test
+    void testBalanceMutationsAreTimedByOperationAndOutcome() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            when(userRepository.creditBalance(user1Id, BigDecimal.TEN)).thenReturn(Optional.of(BigDecimal.TEN));
+            when(userRepository.debitBalance(eq(user1Id), any())).thenReturn(Optional.empty());
+            when(userRepository.findById(user1Id)).thenReturn(Optional.of(user1));
+
+            userService.addBalance(user1Id.toString(), BigDecimal.TEN);
+            assertThrows(ResponseStatusException.class,
+                    () -> userService.deductBalance(user1Id.toString(), BigDecimal.ONE));
+
+            assertEquals(1, registry.get("balance.mutation").tags("operation", "credit", "outcome", "success").timer().count());
+            assertEquals(1, registry.get("balance.mutation")
+                    .tags("operation", "debit", "outcome", "insufficient_balance").timer().count());
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+
+    @Test
+    void testDeductBalanceNonAttendee() {
+        when(userRepository.debitBalance(eq(adminUserId), any())).thenReturn(Optional.empty());
+        when(userRepository.findById(adminUserId)).thenReturn(Optional.of(adminUser));
+        assertThrows(IllegalStateException.class,
+                () -> userService.deductBalance(adminUserId.toString(), BigDecimal.valueOf(1))
+        );
+    }
+
+    @Test
+    void testAddBalanceGoesThroughCoalescerWhenEnabled() {
+        when(balanceCreditCoalescer.isEnabled()).thenReturn(true);
+        when(balanceCreditCoalescer.credit(user1Id, BigDecimal.TEN))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(BigDecimal.valueOf(110))));
+
+        BigDecimal balance = userService.addBalance(user1Id.toString(), BigDecimal.TEN);
+
+        assertEquals(BigDecimal.valueOf(110), balance);
+        verify(userRepository, never()).creditBalance(any(), any());
+    }
+
+    @Test
+    void testAddBalanceCoalescedFailureReturns500() {
+        when(balanceCreditCoalescer.isEnabled()).thenReturn(true);
+        when(balanceCreditCoalescer.credit(user1Id, BigDecimal.TEN))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("db down")));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> userService.addBalance(user1Id.toString(), BigDecimal.TEN)
+        );
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, ex.getStatusCode());
+    }
+
+    @Test
+    void testAddBalanceDatabaseFailureReturns500() {
+        when(userRepository.creditBalance(eq(user1Id), any())).thenThrow(new RuntimeException("db down"));
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> userService.addBalance(user1Id.toString(), BigDecimal.TEN)
+        );
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, ex.getStatusCode());
     }
 
     @Test
@@ -455,6 +590,7 @@ class UserServiceImplTest {
 
     @Test
     void testDeductBalanceUserNotFound() {
+        when(userRepository.debitBalance(eq(user2Id), any())).thenReturn(Optional.empty());
         when(userRepository.findById(user2Id)).thenReturn(Optional.empty());
         assertThrows(IllegalArgumentException.class,
                 () -> userService.deductBalance(user2Id.toString(), BigDecimal.valueOf(10))
@@ -463,13 +599,12 @@ class UserServiceImplTest {
 
     @Test
     void testGetBalanceSuccess() {
-        user1.setRole(Role.USER);
-        user1.setBalance(BigDecimal.valueOf(123.45));
-        when(userRepository.findById(user1Id)).thenReturn(Optional.of(user1));
+        when(userRepository.currentBalance(user1Id)).thenReturn(Optional.of(BigDecimal.valueOf(123.45)));
 
         BigDecimal balance = userService.getBalance(user1Id.toString());
 
         assertEquals(0, balance.compareTo(BigDecimal.valueOf(123.45)));
+        verify(userRepository, never()).findById(any());
     }
 
     @Test
@@ -481,9 +616,19 @@ class UserServiceImplTest {
 
     @Test
     void testGetBalanceUserNotFound() {
-        when(userRepository.findById(user2Id)).thenReturn(Optional.empty());
+        when(userRepository.currentBalance(user2Id)).thenReturn(Optional.empty());
+        when(userRepository.existsById(user2Id)).thenReturn(false);
         assertThrows(IllegalArgumentException.class,
                 () -> userService.getBalance(user2Id.toString())
         );
     }
+
+    @Test
+    void testGetBalanceNonAttendee() {
+        when(userRepository.currentBalance(adminUserId)).thenReturn(Optional.empty());
+        when(userRepository.existsById(adminUserId)).thenReturn(true);
+        assertThrows(IllegalStateException.class,
+                () -> userService.getBalance(adminUserId.toString())
+        );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package id.ac.ui.cs.advprog.eventsphereauth.timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long START = 1_000_000;
+
+    @Test
+    void testFiresWithinOneTickAndNeverEarly() {
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(10, 8, START);
+        Random random = new Random(42);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            long deadline = START + random.nextInt(200_000);
+            deadlines.put(i, deadline);
+            wheel.schedule(i, deadline);
+        }
+
+        Map<Integer, Long> firedAt = new HashMap<>();
+        for (long now = START; now <= START + 200_100; now += 7) {
+            long at = now;
+            wheel.advance(now, value -> firedAt.put(value, at));
+        }
+
+        assertEquals(deadlines.keySet(), firedAt.keySet());
+        deadlines.forEach((value, deadline) -> {
+            long fired = firedAt.get(value);
+            assertTrue(fired >= deadline, "fired early: " + value);
+            assertTrue(fired < deadline + 10 + 7, "fired late: " + value);
+        });
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCancelledEntriesNeverFire() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, START);
+        HierarchicalTimingWheel.Timeout<String> kept = wheel.schedule("kept", START + 5_000);
+        HierarchicalTimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", START + 5_000);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(START + 6_000, fired::add);
+
+        assertEquals(List.of("kept"), fired);
+        assertFalse(kept.cancel());
+    }
+
+    @Test
+    void testPastDeadlinesFireOnTheNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, START);
+        wheel.advance(START + 500, value -> fail());
+
+        wheel.schedule("late", START);
+        List<String> fired = new ArrayList<>();
+        wheel.advance(START + 509, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(START + 510, fired::add);
+
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    void testLongPauseCatchesUpInOneAdvance() {
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(100, 64, START);
+        for (int i = 1; i <= 100; i++) {
+            wheel.schedule(i, START + i * 60_000L);
+        }
+
+        List<Integer> fired = new ArrayList<>();
+        wheel.advance(START + 50 * 60_000L + 100, fired::add);
+
+        assertEquals(50, fired.size());
+        assertEquals(50, wheel.size());
+    }
+
+    @Test
+    void testRejectsInvalidGeometry() {
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimingWheel<>(0, 8, START));
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimingWheel<>(10, 1, START));
+    }
+}